@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders one small document per operation into a reused {@link StringBuilder}, so that the
+ * {@code gc.alloc.rate.norm} reported by the GC profiler is the number of bytes allocated per document.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+    private final StringBuilder builder = new StringBuilder(1024);
+
+    private Document document;
+    private BsonDocument bsonDocument;
+
+    @Setup
+    public void setup() {
+        document = new Document("string", "value")
+                .append("int", 42)
+                .append("long", Long.MAX_VALUE)
+                .append("double", 1.5)
+                .append("boolean", true)
+                .append("list", Arrays.asList(1, 2, 3))
+                .append("doc", new Document("key", "value"));
+        bsonDocument = new BsonDocument("string", new BsonString("value"))
+                .append("int", new BsonInt32(42))
+                .append("long", new BsonInt64(Long.MAX_VALUE))
+                .append("double", new BsonDouble(1.5))
+                .append("boolean", BsonBoolean.TRUE)
+                .append("list", new BsonArray(Arrays.asList(new BsonInt32(1), new BsonInt32(2), new BsonInt32(3))))
+                .append("doc", new BsonDocument("key", new BsonString("value")));
+    }
+
+    @Benchmark
+    public StringBuilder document() {
+        builder.setLength(0);
+        JsonParseHelper.parse(document, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public StringBuilder bsonDocument() {
+        builder.setLength(0);
+        JsonParseHelper.parse(bsonDocument, builder);
+        return builder;
+    }
+
+}
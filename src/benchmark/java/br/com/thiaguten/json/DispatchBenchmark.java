@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Renders a list of mixed scalar values, the leaves of every document, comparing the engine type-dispatch table with the
+ * {@code instanceof} chain it replaced (kept here as the {@code instanceofChain} baseline).
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private final StringBuilder builder = new StringBuilder(8192);
+    private final JsonParseEngine engine = JsonParseEngine.getDefault();
+
+    private List<Object> values;
+
+    @Setup
+    public void setup() {
+        values = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            // the usual leaves, with the common ones placed last in the instanceof chain
+            values.add(new ObjectId());
+            values.add(new Date(1449321983184L + i));
+            values.add("value" + i);
+            values.add(i);
+            values.add((long) i << 32);
+            values.add(i / 3.0);
+            values.add(i % 2 == 0);
+        }
+    }
+
+    @Benchmark
+    public StringBuilder dispatchTable() {
+        builder.setLength(0);
+        engine.parse(values, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public StringBuilder instanceofChain() {
+        builder.setLength(0);
+        JsonOutput output = JsonOutput.of(builder);
+        output.append(JsonParseHelper.JSON_ARRAY_START_TOKEN);
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                output.append(JsonParseHelper.COMMA);
+            }
+            checkInstance(values.get(i), output);
+        }
+        output.append(JsonParseHelper.JSON_ARRAY_END_TOKEN);
+        return builder;
+    }
+
+    /**
+     * The order of the original chain, with only the output calls of each branch.
+     */
+    private static void checkInstance(final Object value, final JsonOutput output) {
+        if (value instanceof org.bson.BsonValue) {
+            output.append(JsonParseHelper.NULL);
+        } else {
+            if (value instanceof ObjectId) {
+                output.appendObjectId((ObjectId) value);
+                return;
+            }
+            if (value instanceof List) {
+                output.append(JsonParseHelper.JSON_ARRAY_START_TOKEN).append(JsonParseHelper.JSON_ARRAY_END_TOKEN);
+                return;
+            }
+            if (value instanceof java.util.Map) {
+                output.append(JsonParseHelper.JSON_OBJECT_START_TOKEN).append(JsonParseHelper.JSON_OBJECT_END_TOKEN);
+                return;
+            }
+            if (value instanceof Date) {
+                output.appendDateTime(((Date) value).getTime());
+                return;
+            }
+            if (value instanceof String) {
+                output.appendString((String) value);
+                return;
+            }
+            if (value instanceof Pattern) {
+                output.appendString(value.toString());
+                return;
+            }
+            if (value instanceof Number) {
+                output.append(value);
+                return;
+            }
+            if (value instanceof Boolean) {
+                output.append(((Boolean) value).booleanValue());
+                return;
+            }
+            if (value == null) {
+                output.append(JsonParseHelper.NULL);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of every {@link JsonParseHelper} entry point over the same generated corpus, whose size grows with
+ * the {@code width} (fields per document) and the {@code depth} (nested documents), and whose type mix is either
+ * plain JSON types only ({@code json}) or BSON types without a JSON counterpart as well ({@code bson}).
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntryPointBenchmark {
+
+    @Param({"4", "16", "64"})
+    private int width;
+
+    @Param({"1", "4"})
+    private int depth;
+
+    @Param({"json", "bson"})
+    private String mix;
+
+    private String strict;
+    private String shell;
+    private Document document;
+    private BsonDocument bsonDocument;
+    private RawBsonDocument rawBsonDocument;
+    private byte[] bson;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        bsonDocument = generate(random, depth);
+        strict = bsonDocument.toJson(new JsonWriterSettings(JsonMode.STRICT));
+        shell = bsonDocument.toJson(new JsonWriterSettings(JsonMode.SHELL));
+        document = Document.parse(strict);
+        rawBsonDocument = new RawBsonDocument(bsonDocument, new BsonDocumentCodec());
+        bson = Arrays.copyOf(rawBsonDocument.getByteBuffer().array(), rawBsonDocument.getByteBuffer().remaining());
+    }
+
+    private BsonDocument generate(final Random random, final int level) {
+        BsonDocument d = new BsonDocument();
+        for (int i = 0; i < width; i++) {
+            d.append("field" + i, value(random, i));
+        }
+        d.append("array", new BsonArray(Arrays.<BsonValue>asList(new BsonInt32(1), new BsonString("two"), new BsonDouble(3.0))));
+        if (level > 1) {
+            d.append("child", generate(random, level - 1));
+        }
+        return d;
+    }
+
+    private BsonValue value(final Random random, final int index) {
+        int types = "bson".equals(mix) ? 10 : 4;
+        switch (index % types) {
+            case 0:
+                return new BsonInt32(random.nextInt());
+            case 1:
+                return new BsonString("value-" + random.nextInt(1000));
+            case 2:
+                return new BsonDouble(random.nextDouble());
+            case 3:
+                return BsonBoolean.valueOf(random.nextBoolean());
+            case 4:
+                return new BsonObjectId(new ObjectId());
+            case 5:
+                return new BsonDateTime(random.nextInt() & 0x7fffffffL);
+            case 6:
+                return new BsonInt64(random.nextLong());
+            case 7:
+                return new BsonRegularExpression("\\d+", "i");
+            case 8:
+                byte[] data = new byte[16];
+                random.nextBytes(data);
+                return new BsonBinary(data);
+            default:
+                return new BsonDecimal128(Decimal128.parse(Integer.toString(random.nextInt())));
+        }
+    }
+
+    @Benchmark
+    public String parseStrict() {
+        return JsonParseHelper.parse(strict);
+    }
+
+    @Benchmark
+    public String parseShell() {
+        return JsonParseHelper.parse(shell);
+    }
+
+    @Benchmark
+    public String transcodeStrict() {
+        return JsonParseHelper.transcode(strict);
+    }
+
+    @Benchmark
+    public String transcodeShell() {
+        return JsonParseHelper.transcode(shell);
+    }
+
+    @Benchmark
+    public String document() {
+        return JsonParseHelper.parse(document);
+    }
+
+    @Benchmark
+    public String bsonDocument() {
+        return JsonParseHelper.parse(bsonDocument);
+    }
+
+    @Benchmark
+    public String rawBsonDocument() {
+        return JsonParseHelper.parse(rawBsonDocument);
+    }
+
+    @Benchmark
+    public String bytes() {
+        return JsonParseHelper.parse(bson);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders documents whose size grows linearly with the nesting depth, so the average time per operation
+ * is expected to grow linearly with the depth as well (and not as depth x size).
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestingDepthBenchmark {
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    private int depth;
+
+    private Document document;
+    private BsonDocument bsonDocument;
+
+    @Setup
+    public void setup() {
+        for (int level = depth; level > 0; level--) {
+            Document d = new Document("level", level)
+                    .append("name", "level-" + level)
+                    .append("tags", Arrays.asList("a", "b", "c"));
+            BsonDocument b = new BsonDocument("level", new BsonInt32(level))
+                    .append("name", new BsonString("level-" + level))
+                    .append("tags", new BsonArray(Arrays.asList(new BsonString("a"), new BsonString("b"), new BsonString("c"))));
+            if (document != null) {
+                d.append("child", document);
+                b.append("child", bsonDocument);
+            }
+            document = d;
+            bsonDocument = b;
+        }
+    }
+
+    @Benchmark
+    public String document() {
+        return JsonParseHelper.parse(document);
+    }
+
+    @Benchmark
+    public String bsonDocument() {
+        return JsonParseHelper.parse(bsonDocument);
+    }
+
+}
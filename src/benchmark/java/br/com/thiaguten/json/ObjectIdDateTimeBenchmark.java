@@ -0,0 +1,83 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a document made only of {@link ObjectId} and {@link Date} values, the two types found in almost every document,
+ * into a reused {@link StringBuilder} and into a UTF-8 {@link java.io.OutputStream}.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectIdDateTimeBenchmark {
+
+    private final StringBuilder builder = new StringBuilder(4096);
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+    private Document document;
+
+    @Setup
+    public void setup() {
+        document = new Document();
+        for (int i = 0; i < 8; i++) {
+            document.append("id" + i, new ObjectId());
+            // same day, different times, as usual for the dates of a result set
+            document.append("date" + i, new Date(1449321983184L + i * 61001L));
+        }
+    }
+
+    @Benchmark
+    public StringBuilder stringBuilder() {
+        builder.setLength(0);
+        JsonParseHelper.parse(document, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream outputStream() {
+        out.reset();
+        JsonParseHelper.parse(document, out);
+        return out;
+    }
+
+}
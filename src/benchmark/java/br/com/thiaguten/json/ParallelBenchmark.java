@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a 100k element list, and the same elements as a batch, with a dedicated {@link ForkJoinPool} of each size,
+ * compared with the sequential conversion ({@code cores = 0}).
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+    @Param({"0", "1", "2", "4", "8"})
+    private int cores;
+
+    @Param({"100000"})
+    private int size;
+
+    private List<Document> documents;
+    private ForkJoinPool pool;
+    private JsonParseEngine engine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            documents.add(new Document("_id", new ObjectId())
+                    .append("index", i)
+                    .append("name", "document " + i)
+                    .append("created", new Date(1449321983184L + i))
+                    .append("tags", Arrays.asList("a", "b", "c"))
+                    .append("nested", new Document("value", i * 1.5)));
+        }
+        if (cores == 0) {
+            engine = JsonParseEngine.getDefault();
+        } else {
+            pool = new ForkJoinPool(cores);
+            engine = JsonParseEngine.builder().parallelThreshold(1024).executor(pool).build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String list() {
+        return engine.parse(documents);
+    }
+
+    @Benchmark
+    public String batch() {
+        return engine.parseBatch(documents, BatchFormat.NDJSON);
+    }
+
+}
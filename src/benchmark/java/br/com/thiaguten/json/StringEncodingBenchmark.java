@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders documents made of string values into a UTF-8 {@link java.io.OutputStream} and into a {@link StringBuilder},
+ * for ASCII-heavy (fast path), escape-heavy and multibyte payloads.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringEncodingBenchmark {
+
+    private static final String ASCII = "The quick brown fox jumps over the lazy dog 0123456789. ";
+    private static final String ESCAPE = "\"quoted\"\t\\path\\to\\file\r\n\u0001 ";
+    private static final String MULTIBYTE = "Ação rápida, 漢字とかな, Ελληνικά, emoji 😀. ";
+
+    @Param({"ascii", "escape", "multibyte"})
+    private String payload;
+
+    @Param({"16", "1024"})
+    private int length;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+    private final StringBuilder builder = new StringBuilder(1 << 20);
+
+    private Document document;
+
+    @Setup
+    public void setup() {
+        String unit = "ascii".equals(payload) ? ASCII : "escape".equals(payload) ? ESCAPE : MULTIBYTE;
+        StringBuilder value = new StringBuilder(length);
+        while (value.length() < length) {
+            value.append(unit);
+        }
+        document = new Document();
+        for (int i = 0; i < 16; i++) {
+            document.append("field" + i, value.substring(0, length));
+        }
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream outputStream() {
+        out.reset();
+        JsonParseHelper.parse(document, out);
+        return out;
+    }
+
+    @Benchmark
+    public StringBuilder stringBuilder() {
+        builder.setLength(0);
+        JsonParseHelper.parse(document, builder);
+        return builder;
+    }
+
+}
@@ -0,0 +1,72 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import static br.com.thiaguten.json.JsonParseHelper.COMMA;
+import static br.com.thiaguten.json.JsonParseHelper.JSON_ARRAY_END_TOKEN;
+import static br.com.thiaguten.json.JsonParseHelper.JSON_ARRAY_START_TOKEN;
+
+/**
+ * How a batch of documents is laid out when converted into 'standard' JSON format in one call.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public enum BatchFormat {
+
+    /**
+     * A single JSON array holding every document: {@code [{...}, {...}]}.
+     */
+    ARRAY(JSON_ARRAY_START_TOKEN, COMMA, "", JSON_ARRAY_END_TOKEN),
+
+    /**
+     * <a href="http://ndjson.org">Newline delimited JSON</a>, one document per line, each line terminated by {@code \n}.
+     */
+    NDJSON("", "", "\n", "");
+
+    private final String start;
+    private final String separator;
+    private final String terminator;
+    private final String end;
+
+    BatchFormat(String start, String separator, String terminator, String end) {
+        this.start = start;
+        this.separator = separator;
+        this.terminator = terminator;
+        this.end = end;
+    }
+
+    String getStart() {
+        return start;
+    }
+
+    String getSeparator() {
+        return separator;
+    }
+
+    String getTerminator() {
+        return terminator;
+    }
+
+    String getEnd() {
+        return end;
+    }
+
+}
@@ -0,0 +1,486 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonReader;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonReader;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static br.com.thiaguten.json.JsonParseHelper.SLASH;
+import static br.com.thiaguten.json.JsonParseHelper.UTC_DATE_TIME_ZONE;
+
+/**
+ * Immutable and thread-safe inverse of {@link JsonParseEngine}, converting 'standard' JSON format back into BSON types,
+ * driven by hints of the type of the values at given dotted paths:
+ * <pre>
+ * {@code BsonConverter converter = BsonConverter.builder().hint("_id", BsonType.OBJECT_ID).hint("items.*.date", BsonType.DATE_TIME).build();
+ * BsonDocument document = converter.toBsonDocument(json); }
+ * </pre>
+ * A path segment is a field name, an array index or {@code *}, which matches any field name or array index;
+ * a path with a name takes precedence over one with {@code *} where they hint the same value.
+ * <p>
+ * The JSON is read token by token with a {@link JsonReader} and written straight into a {@link BsonWriter} in a single pass,
+ * with no intermediate tree. A hinted value is read back from how {@link JsonParseEngine} renders the type:
+ * <ul>
+ * <li>{@link BsonType#OBJECT_ID}: hexadecimal string</li>
+ * <li>{@link BsonType#DATE_TIME}: UTC date time string ({@code 2015-12-05T11:26:23.184}, or with an offset), or milliseconds since the epoch</li>
+ * <li>{@link BsonType#REGULAR_EXPRESSION}: {@code pattern/options} string, the options being a run of option letters after the last {@code /}</li>
+ * <li>{@link BsonType#BINARY}: base64 string</li>
+ * <li>{@link BsonType#TIMESTAMP}: {@code {"t":<seconds>, "i":<ordinal>}}</li>
+ * <li>{@link BsonType#MIN_KEY}, {@link BsonType#MAX_KEY}: any value</li>
+ * <li>{@link BsonType#INT32}, {@link BsonType#INT64}, {@link BsonType#DOUBLE}, {@link BsonType#DECIMAL128}: number or numeric string</li>
+ * <li>{@link BsonType#STRING}, {@link BsonType#SYMBOL}, {@link BsonType#JAVASCRIPT}: string</li>
+ * </ul>
+ * {@code null} stays {@code null} whatever the hint; values without a hint are kept as read.
+ * Numbers are read as doubles, so a {@link BsonType#DECIMAL128} with more than 17 significant digits must be a string to keep them all.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public final class BsonConverter {
+
+    private static final Set<BsonType> SUPPORTED_TYPES = EnumSet.of(BsonType.OBJECT_ID, BsonType.DATE_TIME, BsonType.REGULAR_EXPRESSION,
+            BsonType.BINARY, BsonType.TIMESTAMP, BsonType.MIN_KEY, BsonType.MAX_KEY, BsonType.INT32, BsonType.INT64, BsonType.DOUBLE,
+            BsonType.DECIMAL128, BsonType.STRING, BsonType.SYMBOL, BsonType.JAVASCRIPT);
+    private static final String REGULAR_EXPRESSION_OPTIONS = "dicmsuxlU";
+    private static final String WILDCARD = "*";
+
+    private final Map<String, BsonType> hints;
+    private final Node root = new Node();
+    private final BsonValueCodec bsonValueCodec = new BsonValueCodec();
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private final DecoderContext decoderContext = DecoderContext.builder().build();
+    private final EncoderContext encoderContext = EncoderContext.builder().build();
+
+    private BsonConverter(final Builder builder) {
+        this.hints = Collections.unmodifiableMap(new LinkedHashMap<>(builder.hints));
+        for (Map.Entry<String, BsonType> hint : hints.entrySet()) {
+            Node node = root;
+            for (String segment : hint.getKey().split("\\.", -1)) {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+            node.type = hint.getValue();
+        }
+        root.normalize();
+    }
+
+    /**
+     * Creates a builder of converters.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the type hints.
+     *
+     * @return the unmodifiable hints by dotted path, in registration order
+     */
+    public Map<String, BsonType> getHints() {
+        return hints;
+    }
+
+    /**
+     * Converts a 'standard' JSON document into a {@link BsonDocument}.
+     *
+     * @param json the JSON document
+     * @return the document
+     * @throws IllegalArgumentException if the JSON is not a document or a hinted value can not be converted
+     */
+    public BsonDocument toBsonDocument(final String json) {
+        BsonDocument document = new BsonDocument();
+        write(json, new BsonDocumentWriter(document));
+        return document;
+    }
+
+    /**
+     * Converts a 'standard' JSON document into binary BSON.
+     *
+     * @param json the JSON document
+     * @return the document
+     * @throws IllegalArgumentException if the JSON is not a document or a hinted value can not be converted
+     */
+    public RawBsonDocument toRawBsonDocument(final String json) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        BsonBinaryWriter writer = new BsonBinaryWriter(buffer);
+        try {
+            write(json, writer);
+        } finally {
+            writer.close();
+        }
+        return new RawBsonDocument(buffer.toByteArray());
+    }
+
+    /**
+     * Converts a 'standard' JSON document into a {@link Document}, decoded from binary BSON.
+     *
+     * @param json the JSON document
+     * @return the document
+     * @throws IllegalArgumentException if the JSON is not a document or a hinted value can not be converted
+     */
+    public Document toDocument(final String json) {
+        BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(toRawBsonDocument(json).getByteBuffer().array()));
+        try {
+            return documentCodec.decode(reader, decoderContext);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Converts a 'standard' JSON document, writing it as a document to the given {@link BsonWriter}
+     * (a {@link BsonBinaryWriter} or a {@link BsonDocumentWriter}, for instance).
+     *
+     * @param json   the JSON document
+     * @param writer where the document is written to
+     * @throws IllegalArgumentException if the JSON is not a document or a hinted value can not be converted
+     */
+    public void write(final String json, final BsonWriter writer) {
+        if (json == null) {
+            throw new IllegalArgumentException("json can not be null");
+        }
+        JsonReader reader = new JsonReader(json);
+        try {
+            if (reader.readBsonType() != BsonType.DOCUMENT) {
+                throw new IllegalArgumentException("json is not a document");
+            }
+            writeDocument(reader, writer, root);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void writeDocument(final BsonReader reader, final BsonWriter writer, final Node node) {
+        reader.readStartDocument();
+        writer.writeStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            writer.writeName(name);
+            writeValue(reader, writer, node != null ? node.select(name) : null, name);
+        }
+        reader.readEndDocument();
+        writer.writeEndDocument();
+    }
+
+    private void writeArray(final BsonReader reader, final BsonWriter writer, final Node node, final String name) {
+        reader.readStartArray();
+        writer.writeStartArray();
+        for (int index = 0; reader.readBsonType() != BsonType.END_OF_DOCUMENT; index++) {
+            writeValue(reader, writer, node != null ? node.select(index) : null, name);
+        }
+        reader.readEndArray();
+        writer.writeEndArray();
+    }
+
+    private void writeValue(final BsonReader reader, final BsonWriter writer, final Node node, final String name) {
+        BsonType bsonType = reader.getCurrentBsonType();
+        if (node != null && node.type != null && bsonType != BsonType.NULL) {
+            try {
+                convert(reader, writer, bsonType, node.type);
+            } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException e) {
+                throw new IllegalArgumentException("can not convert the " + bsonType + " of " + name + " to " + node.type, e);
+            }
+            return;
+        }
+        switch (bsonType) {
+            case DOCUMENT:
+                writeDocument(reader, writer, node);
+                break;
+            case ARRAY:
+                writeArray(reader, writer, node, name);
+                break;
+            case STRING:
+                writer.writeString(reader.readString());
+                break;
+            case INT32:
+                writer.writeInt32(reader.readInt32());
+                break;
+            case INT64:
+                writer.writeInt64(reader.readInt64());
+                break;
+            case DOUBLE:
+                writer.writeDouble(reader.readDouble());
+                break;
+            case BOOLEAN:
+                writer.writeBoolean(reader.readBoolean());
+                break;
+            case NULL:
+                reader.readNull();
+                writer.writeNull();
+                break;
+            default:
+                // strict or shell mode representations, kept as they are
+                BsonValue value = bsonValueCodec.decode(reader, decoderContext);
+                bsonValueCodec.encode(writer, value, encoderContext);
+                break;
+        }
+    }
+
+    private void convert(final BsonReader reader, final BsonWriter writer, final BsonType bsonType, final BsonType hint) {
+        switch (hint) {
+            case OBJECT_ID:
+                writer.writeObjectId(new ObjectId(readString(reader, bsonType)));
+                break;
+            case DATE_TIME:
+                writer.writeDateTime(bsonType == BsonType.STRING ? parseDateTime(reader.readString()) : readDecimal(reader, bsonType).longValueExact());
+                break;
+            case REGULAR_EXPRESSION:
+                writer.writeRegularExpression(parseRegularExpression(readString(reader, bsonType)));
+                break;
+            case BINARY:
+                writer.writeBinaryData(new BsonBinary(Base64.getDecoder().decode(readString(reader, bsonType))));
+                break;
+            case TIMESTAMP:
+                writer.writeTimestamp(readTimestamp(reader, bsonType));
+                break;
+            case MIN_KEY:
+                reader.skipValue();
+                writer.writeMinKey();
+                break;
+            case MAX_KEY:
+                reader.skipValue();
+                writer.writeMaxKey();
+                break;
+            case INT32:
+                writer.writeInt32(readDecimal(reader, bsonType).intValueExact());
+                break;
+            case INT64:
+                writer.writeInt64(readDecimal(reader, bsonType).longValueExact());
+                break;
+            case DOUBLE:
+                writer.writeDouble(bsonType == BsonType.DOUBLE ? reader.readDouble() : Double.parseDouble(readString(reader, bsonType)));
+                break;
+            case DECIMAL128:
+                writer.writeDecimal128(bsonType == BsonType.STRING ? Decimal128.parse(reader.readString()) : new Decimal128(readDecimal(reader, bsonType)));
+                break;
+            case SYMBOL:
+                writer.writeSymbol(readString(reader, bsonType));
+                break;
+            case JAVASCRIPT:
+                writer.writeJavaScript(readString(reader, bsonType));
+                break;
+            default:
+                writer.writeString(readString(reader, bsonType));
+                break;
+        }
+    }
+
+    /**
+     * Reads a string, or the text of a number.
+     */
+    private static String readString(final BsonReader reader, final BsonType bsonType) {
+        switch (bsonType) {
+            case STRING:
+                return reader.readString();
+            case INT32:
+                return Integer.toString(reader.readInt32());
+            case INT64:
+                return Long.toString(reader.readInt64());
+            case DOUBLE:
+                return Double.toString(reader.readDouble());
+            default:
+                throw new IllegalArgumentException("not a string");
+        }
+    }
+
+    private static BigDecimal readDecimal(final BsonReader reader, final BsonType bsonType) {
+        switch (bsonType) {
+            case INT32:
+                return BigDecimal.valueOf(reader.readInt32());
+            case INT64:
+                return BigDecimal.valueOf(reader.readInt64());
+            case DOUBLE:
+                return BigDecimal.valueOf(reader.readDouble());
+            case STRING:
+                return new BigDecimal(reader.readString().trim());
+            default:
+                throw new IllegalArgumentException("not a number");
+        }
+    }
+
+    private static long parseDateTime(final String dateTime) {
+        try {
+            return LocalDateTime.parse(dateTime).atZone(UTC_DATE_TIME_ZONE).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return OffsetDateTime.parse(dateTime).toInstant().toEpochMilli();
+        }
+    }
+
+    /**
+     * Splits {@code pattern/options} as rendered by {@link JsonParseEngine}, a pattern without options being rendered without the slash.
+     */
+    private static BsonRegularExpression parseRegularExpression(final String regularExpression) {
+        int slash = regularExpression.lastIndexOf(SLASH);
+        if (slash < 0 || slash == regularExpression.length() - 1) {
+            return new BsonRegularExpression(regularExpression);
+        }
+        for (int i = slash + 1; i < regularExpression.length(); i++) {
+            if (REGULAR_EXPRESSION_OPTIONS.indexOf(regularExpression.charAt(i)) < 0) {
+                return new BsonRegularExpression(regularExpression);
+            }
+        }
+        return new BsonRegularExpression(regularExpression.substring(0, slash), regularExpression.substring(slash + 1));
+    }
+
+    private static BsonTimestamp readTimestamp(final BsonReader reader, final BsonType bsonType) {
+        if (bsonType != BsonType.DOCUMENT) {
+            throw new IllegalArgumentException("not a document");
+        }
+        int seconds = 0;
+        int increment = 0;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if ("t".equals(name)) {
+                seconds = readUnsignedInt(reader);
+            } else if ("i".equals(name)) {
+                increment = readUnsignedInt(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new BsonTimestamp(seconds, increment);
+    }
+
+    /**
+     * Reads the unsigned 32 bit integer the engine writes the parts of a timestamp as.
+     */
+    private static int readUnsignedInt(final BsonReader reader) {
+        long value = readDecimal(reader, reader.getCurrentBsonType()).longValueExact();
+        if (value < 0 || value > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException(value + " is not an unsigned 32 bit integer");
+        }
+        return (int) value;
+    }
+
+    /**
+     * A level of the compiled hints. The children matched by a wildcard are merged into the named children once,
+     * when the converter is built, so that a field is selected with a single lookup.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private BsonType type;
+
+        private void normalize() {
+            Node wildcard = children.get(WILDCARD);
+            for (Node child : children.values()) {
+                if (wildcard != null && child != wildcard) {
+                    child.merge(wildcard);
+                }
+                child.normalize();
+            }
+        }
+
+        private void merge(final Node node) {
+            if (type == null) {
+                type = node.type;
+            }
+            for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+                children.computeIfAbsent(entry.getKey(), s -> new Node()).merge(entry.getValue());
+            }
+        }
+
+        private Node select(final String name) {
+            Node child = children.get(name);
+            return child != null ? child : children.get(WILDCARD);
+        }
+
+        private Node select(final int index) {
+            return children.isEmpty() ? null : select(Integer.toString(index));
+        }
+
+    }
+
+    /**
+     * A builder for {@link BsonConverter}.
+     */
+    public static final class Builder {
+
+        private final Map<String, BsonType> hints = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Hints the type of the values at a dotted path.
+         *
+         * @param path     the dotted path
+         * @param bsonType the type of the values
+         * @return this
+         * @throws IllegalArgumentException if the path is empty or has empty segments, or the type can not be read back from JSON
+         */
+        public Builder hint(final String path, final BsonType bsonType) {
+            if (path == null || path.isEmpty() || path.startsWith(".") || path.endsWith(".") || path.contains("..")) {
+                throw new IllegalArgumentException("path can not be null, empty or have empty segments: " + path);
+            }
+            if (!SUPPORTED_TYPES.contains(bsonType)) {
+                throw new IllegalArgumentException("type not supported: " + bsonType);
+            }
+            hints.put(path, bsonType);
+            return this;
+        }
+
+        /**
+         * Builds the converter.
+         *
+         * @return the converter
+         */
+        public BsonConverter build() {
+            return new BsonConverter(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool of the {@link StringBuilder}s the conversions returning a {@link String} render into, one pool per kind of conversion.
+ * <p>
+ * Buffers are kept in a few slots picked by thread id rather than in a {@link ThreadLocal}, so that short-lived or virtual threads
+ * neither pin a buffer each nor miss every time; a slot that is taken, by another thread on the same slot, just means a new buffer.
+ * The pool learns the typical output size as a moving average and presizes the buffers it hands out to it, and drops the buffers
+ * that an outlier grew well beyond it, instead of keeping them around.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+final class BufferPool {
+
+    static final int MIN_CAPACITY = 256;
+
+    /**
+     * Buffers grown beyond this many times the average output size are not reused.
+     */
+    static final int MAX_CAPACITY_FACTOR = 4;
+
+    private static final int SLOTS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+
+    private final AtomicReferenceArray<StringBuilder> slots = new AtomicReferenceArray<>(SLOTS);
+    // updated without synchronization, a lost update only slows the learning down
+    private volatile int average = MIN_CAPACITY;
+
+    /**
+     * Takes a buffer from the pool, or creates one, with room for a bit more than the average output, or for the given size hint
+     * (the size of the input, for instance) if greater.
+     */
+    StringBuilder acquire(final int hint) {
+        int capacity = Math.max(hint, average + (average >> 2));
+        StringBuilder builder = slots.getAndSet(slot(), null);
+        if (builder == null) {
+            return new StringBuilder(capacity);
+        }
+        builder.ensureCapacity(capacity);
+        return builder;
+    }
+
+    /**
+     * Gets the content of a buffer taken from the pool and gives the buffer back, unless it grew too large.
+     */
+    String release(final StringBuilder builder) {
+        String s = builder.toString();
+        int length = builder.length();
+        int avg = average;
+        avg = Math.max(MIN_CAPACITY, avg + ((length - avg) >> 3));
+        average = avg;
+        if (builder.capacity() <= (long) avg * MAX_CAPACITY_FACTOR) {
+            builder.setLength(0);
+            slots.compareAndSet(slot(), null, builder);
+        }
+        return s;
+    }
+
+    int getAverage() {
+        return average;
+    }
+
+    private static int slot() {
+        return (int) Thread.currentThread().getId() & (SLOTS - 1);
+    }
+
+}
@@ -0,0 +1,239 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonReader;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.CodeWithScope;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The shape of a converted input: how deep its documents and arrays are nested, how many values it has and of which {@link BsonType}.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ * @see JsonParseEvent#getShape()
+ */
+public final class DocumentShape {
+
+    private static final BsonType[] BSON_TYPES = BsonType.values();
+
+    private final long[] counts = new long[BSON_TYPES.length];
+    private int maxDepth;
+    private long elementCount;
+
+    private DocumentShape() {
+    }
+
+    static DocumentShape of(final Object input) {
+        DocumentShape shape = new DocumentShape();
+        if (input instanceof String) {
+            String json = (String) input;
+            char token = JsonParseEngine.firstToken(json);
+            if (token == '{' || token == '[') {
+                JsonReader reader = new JsonReader(json);
+                reader.readBsonType();
+                shape.walk(reader, 1);
+            }
+        } else if (input instanceof ByteBuffer) {
+            shape.walk(((ByteBuffer) input).duplicate());
+        } else if (input instanceof RawBsonDocument) {
+            // walks the bytes, the values would be decoded
+            shape.walk(((RawBsonDocument) input).getByteBuffer().asNIO());
+        } else if (input != null) {
+            shape.walk(input, 1);
+        }
+        return shape;
+    }
+
+    /**
+     * Gets how deep the documents and arrays are nested.
+     *
+     * @return the maximum depth, {@code 1} for a flat document, {@code 0} if the input is neither a document nor an array
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets the number of values, the root document or array included.
+     *
+     * @return the element count
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Gets the number of values of a type.
+     *
+     * @param bsonType the type
+     * @return the count
+     */
+    public long getCount(final BsonType bsonType) {
+        return counts[bsonType.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DocumentShape{maxDepth=").append(maxDepth).append(", elementCount=").append(elementCount);
+        for (BsonType bsonType : BSON_TYPES) {
+            if (counts[bsonType.ordinal()] > 0) {
+                builder.append(", ").append(bsonType).append('=').append(counts[bsonType.ordinal()]);
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    private void count(final BsonType bsonType, final int depth) {
+        elementCount++;
+        if (bsonType != null) {
+            counts[bsonType.ordinal()]++;
+            if (bsonType == BsonType.DOCUMENT || bsonType == BsonType.ARRAY) {
+                maxDepth = Math.max(maxDepth, depth);
+            }
+        }
+    }
+
+    private void walk(final ByteBuffer bson) {
+        BsonBinaryReader reader = new BsonBinaryReader(bson);
+        try {
+            reader.readBsonType();
+            walk(reader, 1);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void walk(final BsonReader reader, final int depth) {
+        BsonType bsonType = reader.getCurrentBsonType();
+        count(bsonType, depth);
+        if (bsonType == BsonType.DOCUMENT) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                reader.skipName();
+                walk(reader, depth + 1);
+            }
+            reader.readEndDocument();
+        } else if (bsonType == BsonType.ARRAY) {
+            reader.readStartArray();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                walk(reader, depth + 1);
+            }
+            reader.readEndArray();
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    private void walk(final Object value, final int depth) {
+        count(typeOf(value), depth);
+        if (value instanceof Map) {
+            for (Object v : ((Map<?, ?>) value).values()) {
+                walk(v, depth + 1);
+            }
+        } else if (value instanceof List) {
+            for (Object v : (List<?>) value) {
+                walk(v, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Gets the type a value is rendered as, {@code null} for the types that are not supported out of the box.
+     */
+    private static BsonType typeOf(final Object value) {
+        if (value == null) {
+            return BsonType.NULL;
+        }
+        if (value instanceof BsonValue) {
+            return ((BsonValue) value).getBsonType();
+        }
+        if (value instanceof Map) {
+            return BsonType.DOCUMENT;
+        }
+        if (value instanceof List) {
+            return BsonType.ARRAY;
+        }
+        if (value instanceof String) {
+            return BsonType.STRING;
+        }
+        if (value instanceof Integer) {
+            return BsonType.INT32;
+        }
+        if (value instanceof Long) {
+            return BsonType.INT64;
+        }
+        if (value instanceof Number && !(value instanceof Decimal128)) {
+            return BsonType.DOUBLE;
+        }
+        if (value instanceof Boolean) {
+            return BsonType.BOOLEAN;
+        }
+        if (value instanceof Date) {
+            return BsonType.DATE_TIME;
+        }
+        if (value instanceof ObjectId) {
+            return BsonType.OBJECT_ID;
+        }
+        if (value instanceof Pattern) {
+            return BsonType.REGULAR_EXPRESSION;
+        }
+        if (value instanceof Binary) {
+            return BsonType.BINARY;
+        }
+        if (value instanceof Decimal128) {
+            return BsonType.DECIMAL128;
+        }
+        if (value instanceof CodeWithScope) {
+            return BsonType.JAVASCRIPT_WITH_SCOPE;
+        }
+        if (value instanceof Code) {
+            return BsonType.JAVASCRIPT;
+        }
+        if (value instanceof Symbol) {
+            return BsonType.SYMBOL;
+        }
+        if (value instanceof MinKey) {
+            return BsonType.MIN_KEY;
+        }
+        if (value instanceof MaxKey) {
+            return BsonType.MAX_KEY;
+        }
+        return null;
+    }
+
+}
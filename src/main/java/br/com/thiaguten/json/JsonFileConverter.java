@@ -0,0 +1,348 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Converts files of one strict or shell mode JSON document per line, {@code mongoexport} dumps for instance,
+ * into files of one 'standard' JSON document per line, in the same order:
+ * <pre>
+ * {@code java -cp json-parse-helper.jar:bson.jar br.com.thiaguten.json.JsonFileConverter input.json output.json }
+ * </pre>
+ * The input is memory-mapped and split into segments on line boundaries; the segments are transcoded concurrently
+ * on the {@link JsonParseEngine#getExecutor() executor} of the engine and written in order through a {@link FileChannel},
+ * with a bounded number of segments in flight. Blank lines are dropped.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public final class JsonFileConverter {
+
+    private static final int SEGMENTS_PER_THREAD = 2;
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final JsonParseEngine engine;
+    private final int segmentSize;
+
+    /**
+     * Creates a converter with the default engine and segments of 16 MiB.
+     */
+    public JsonFileConverter() {
+        this(JsonParseEngine.getDefault(), 16 * 1024 * 1024);
+    }
+
+    /**
+     * Creates a converter.
+     *
+     * @param engine      the engine the lines are transcoded with
+     * @param segmentSize the size, in bytes, of the segments converted at once, rounded up to the end of a line
+     */
+    public JsonFileConverter(final JsonParseEngine engine, final int segmentSize) {
+        if (engine == null) {
+            throw new IllegalArgumentException("engine can not be null");
+        }
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("segmentSize must be greater than zero");
+        }
+        this.engine = engine;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Converts every regular file of a directory, not recursively, into a file of the same name in the output directory, one file at a time.
+     *
+     * @param inputDirectory  the directory of the files to convert
+     * @param outputDirectory where the converted files are written to, created if needed
+     * @return the statistics of all files
+     * @throws UncheckedIOException if a file can not be read or written
+     */
+    public Statistics convertDirectory(final Path inputDirectory, final Path outputDirectory) {
+        Statistics statistics = new Statistics();
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(outputDirectory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDirectory, Files::isRegularFile)) {
+                for (Path file : files) {
+                    Statistics s = convert(file, outputDirectory.resolve(file.getFileName().toString()));
+                    statistics.lines += s.lines;
+                    statistics.bytesRead += s.bytesRead;
+                    statistics.bytesWritten += s.bytesWritten;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        statistics.nanos = System.nanoTime() - start;
+        return statistics;
+    }
+
+    /**
+     * Converts a file, replacing the output file if it exists.
+     *
+     * @param input  the file to convert
+     * @param output where the converted file is written to
+     * @return the statistics of the file
+     * @throws UncheckedIOException if the file can not be read or written
+     */
+    public Statistics convert(final Path input, final Path output) {
+        Statistics statistics = new Statistics();
+        long start = System.nanoTime();
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            int maxPending = SEGMENTS_PER_THREAD * engine.parallelism();
+            Deque<Future<Segment>> pending = new ArrayDeque<>();
+            try {
+                for (long from = 0; from < size; ) {
+                    long to = lineEnd(in, Math.min(size, from + segmentSize), size);
+                    pending.add(submit(in, from, to));
+                    from = to;
+                    if (pending.size() >= maxPending) {
+                        write(pending.poll(), out, statistics);
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    write(pending.poll(), out, statistics);
+                }
+            } finally {
+                for (Future<Segment> future : pending) {
+                    future.cancel(true);
+                }
+            }
+            statistics.bytesRead = size;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        statistics.nanos = System.nanoTime() - start;
+        return statistics;
+    }
+
+    /**
+     * Converts a file, or every file of a directory, and prints the throughput.
+     *
+     * @param args the input file or directory, and the output file or directory
+     */
+    public static void main(final String[] args) {
+        if (args.length != 2) {
+            System.err.println("usage: JsonFileConverter <input file or directory> <output file or directory>");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        JsonFileConverter converter = new JsonFileConverter();
+        Statistics statistics = Files.isDirectory(input) ? converter.convertDirectory(input, output) : converter.convert(input, output);
+        System.out.println(statistics);
+    }
+
+    /**
+     * Gets the position right after the end of the line going on at the given position, or the size if it is the last line.
+     */
+    private static long lineEnd(final FileChannel channel, final long position, final long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        // the segment already ends a line if the byte before it is a new line
+        for (long p = position - 1; p < size; p += buffer.limit()) {
+            // through Buffer, whose clear() and flip() ByteBuffer only overrides since Java 9
+            ((Buffer) buffer).clear();
+            if (channel.read(buffer, p) < 0) {
+                break;
+            }
+            ((Buffer) buffer).flip();
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == NEW_LINE) {
+                    return p + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private Future<Segment> submit(final FileChannel channel, final long from, final long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("line too long at " + from);
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        return engine.submit(() -> convert(mapped));
+    }
+
+    private Segment convert(final ByteBuffer mapped) {
+        Segment segment = new Segment(mapped.remaining());
+        JsonOutput output = JsonOutput.of(segment);
+        byte[] line = new byte[256];
+        int limit = mapped.limit();
+        for (int start = 0; start < limit; ) {
+            int end = start;
+            while (end < limit && mapped.get(end) != NEW_LINE) {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && mapped.get(end - 1) == CARRIAGE_RETURN) {
+                end--;
+            }
+            while (start < end && mapped.get(start) <= ' ' && mapped.get(start) >= 0) {
+                start++;
+            }
+            int length = end - start;
+            if (length > 0) {
+                if (length > line.length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                for (int i = 0; i < length; i++) {
+                    line[i] = mapped.get(start + i);
+                }
+                engine.transcode(new String(line, 0, length, StandardCharsets.UTF_8), output);
+                output.append('\n');
+                segment.lines++;
+            }
+            start = next;
+        }
+        output.flush();
+        return segment;
+    }
+
+    private static void write(final Future<Segment> future, final FileChannel out, final Statistics statistics) throws IOException {
+        Segment segment;
+        try {
+            segment = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        ByteBuffer bytes = segment.toByteBuffer();
+        statistics.bytesWritten += bytes.remaining();
+        statistics.lines += segment.lines;
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * The converted lines of a segment.
+     */
+    private static final class Segment extends ByteArrayOutputStream {
+
+        private long lines;
+
+        private Segment(final int size) {
+            super(size);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+    }
+
+    /**
+     * What a conversion read and wrote, and how fast.
+     */
+    public static final class Statistics {
+
+        private long lines;
+        private long bytesRead;
+        private long bytesWritten;
+        private long nanos;
+
+        private Statistics() {
+        }
+
+        /**
+         * Gets the number of converted lines.
+         *
+         * @return the lines
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * Gets the number of bytes read.
+         *
+         * @return the bytes read
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * Gets the number of bytes written.
+         *
+         * @return the bytes written
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * Gets how long the conversion took.
+         *
+         * @return the elapsed time, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Gets the throughput of the conversion, in megabytes (10<sup>6</sup> bytes) read per second.
+         *
+         * @return the throughput
+         */
+        public double getThroughput() {
+            return nanos > 0 ? bytesRead * 1000.0 / nanos : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines, %.1f MB read, %.1f MB written in %.3f s (%.1f MB/s)",
+                    lines, bytesRead / 1e6, bytesWritten / 1e6, nanos / 1e9, getThroughput());
+        }
+
+    }
+
+}
@@ -0,0 +1,650 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Output sink used while rendering 'standard' JSON format.
+ * <p>
+ * It hides the difference between an in-memory {@link StringBuilder}, any other {@link Appendable}
+ * (a {@link java.io.Writer}, for instance) and an UTF-8 encoded {@link OutputStream}, rethrowing I/O failures as {@link UncheckedIOException}.
+ * String values are quoted and escaped as defined by <a href="https://tools.ietf.org/html/rfc8259#section-7">RFC 8259</a>.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+abstract class JsonOutput implements JsonValueOutput {
+
+    /**
+     * Escape sequences of the ASCII characters that can not appear unescaped in a JSON string, {@code null} for the others.
+     */
+    static final String[] ESCAPES = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+    }
+
+    static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * Direct-mapped cache of the formatted {@code yyyy-MM-ddT} prefix of recently rendered days.
+     * Entries are immutable, so racing writers can only cause a miss, never a wrong prefix.
+     */
+    private static final DatePrefix[] DATE_PREFIXES = new DatePrefix[256];
+
+    static JsonOutput of(final Appendable appendable) {
+        if (appendable instanceof StringBuilder) {
+            return new StringBuilderOutput((StringBuilder) appendable);
+        }
+        return new AppendableOutput(appendable);
+    }
+
+    static JsonOutput of(final OutputStream outputStream) {
+        return new Utf8Output(outputStream);
+    }
+
+    abstract JsonOutput append(char c);
+
+    abstract JsonOutput append(String s);
+
+    abstract JsonOutput append(String s, int start, int end);
+
+    JsonOutput append(int i) {
+        return append(String.valueOf(i));
+    }
+
+    JsonOutput append(long l) {
+        return append(String.valueOf(l));
+    }
+
+    JsonOutput append(double d) {
+        return append(String.valueOf(d));
+    }
+
+    JsonOutput append(boolean b) {
+        return append(String.valueOf(b));
+    }
+
+    JsonOutput append(Object o) {
+        return append(String.valueOf(o));
+    }
+
+    /**
+     * Appends the string as a quoted and escaped JSON string, copying the runs of characters that need no escaping at once.
+     */
+    JsonOutput appendString(final String s) {
+        append('"');
+        int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < ESCAPES.length && ESCAPES[c] != null) {
+                if (i > start) {
+                    append(s, start, i);
+                }
+                append(ESCAPES[c]);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            append(s, start, length);
+        }
+        return append('"');
+    }
+
+    /**
+     * Appends the quoted 24 hexadecimal characters of the object id, the same as {@link ObjectId#toHexString()}.
+     */
+    JsonOutput appendObjectId(final ObjectId objectId) {
+        append('"');
+        appendHex(objectId.getTimestamp(), 8);
+        appendHex(objectId.getMachineIdentifier(), 6);
+        appendHex(objectId.getProcessIdentifier(), 4);
+        appendHex(objectId.getCounter(), 6);
+        return append('"');
+    }
+
+    /**
+     * Appends the quoted base64 encoding of the bytes, the same as {@code Base64.getEncoder().encodeToString(data)},
+     * three bytes at a time with no intermediate {@code String}.
+     */
+    JsonOutput appendBase64(final byte[] data) {
+        append('"');
+        int full = data.length - data.length % 3;
+        for (int i = 0; i < full; i += 3) {
+            int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | data[i + 2] & 0xff;
+            append(BASE64[bits >>> 18]).append(BASE64[bits >>> 12 & 0x3f]).append(BASE64[bits >>> 6 & 0x3f]).append(BASE64[bits & 0x3f]);
+        }
+        if (full < data.length) {
+            int bits = (data[full] & 0xff) << 16 | (full + 1 < data.length ? (data[full + 1] & 0xff) << 8 : 0);
+            append(BASE64[bits >>> 18]).append(BASE64[bits >>> 12 & 0x3f]);
+            append(full + 1 < data.length ? BASE64[bits >>> 6 & 0x3f] : '=').append('=');
+        }
+        return append('"');
+    }
+
+    /**
+     * Appends the quoted UTC date time of the milliseconds since the epoch, the same as
+     * {@code LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC).toString()}.
+     */
+    JsonOutput appendDateTime(final long millis) {
+        long epochDay = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+        append('"');
+        appendDatePrefix(datePrefix(epochDay));
+        int hour = millisOfDay / 3600000;
+        int minute = millisOfDay / 60000 % 60;
+        int second = millisOfDay / 1000 % 60;
+        int milli = millisOfDay % 1000;
+        appendDigits(hour, 2).append(':').appendDigits(minute, 2);
+        if (second > 0 || milli > 0) {
+            append(':').appendDigits(second, 2);
+            if (milli > 0) {
+                append('.').appendDigits(milli, 3);
+            }
+        }
+        return append('"');
+    }
+
+    JsonOutput appendDatePrefix(final DatePrefix datePrefix) {
+        return append(datePrefix.text);
+    }
+
+    /**
+     * Appends the lowest digits of the non negative value, left padded with zeros.
+     */
+    JsonOutput appendDigits(final int value, final int digits) {
+        int divisor = 1;
+        for (int i = 1; i < digits; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            append((char) ('0' + value / divisor % 10));
+        }
+        return this;
+    }
+
+    private void appendHex(final int value, final int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            append(HEX[(value >>> shift) & 0xf]);
+        }
+    }
+
+    static DatePrefix datePrefix(final long epochDay) {
+        int index = (int) (epochDay & (DATE_PREFIXES.length - 1));
+        DatePrefix datePrefix = DATE_PREFIXES[index];
+        if (datePrefix == null || datePrefix.epochDay != epochDay) {
+            // LocalDate also takes care of the sign and of the years with more than four digits
+            datePrefix = new DatePrefix(epochDay, LocalDate.ofEpochDay(epochDay) + "T");
+            DATE_PREFIXES[index] = datePrefix;
+        }
+        return datePrefix;
+    }
+
+    @Override
+    public JsonValueOutput writeString(final String value) {
+        return appendString(value);
+    }
+
+    @Override
+    public JsonValueOutput writeNumber(final long value) {
+        return append(value);
+    }
+
+    @Override
+    public JsonValueOutput writeNumber(final double value) {
+        return append(value);
+    }
+
+    @Override
+    public JsonValueOutput writeBoolean(final boolean value) {
+        return append(value);
+    }
+
+    @Override
+    public JsonValueOutput writeNull() {
+        return append("null");
+    }
+
+    @Override
+    public JsonValueOutput writeRaw(final String json) {
+        return append(json);
+    }
+
+    /**
+     * Writes anything still buffered to the underlying sink.
+     */
+    void flush() {
+        // NOP
+    }
+
+    /**
+     * Gets the number of characters, or bytes for an {@link OutputStream}, written so far, {@code -1} if it is not known.
+     */
+    long size() {
+        return -1L;
+    }
+
+    static final class DatePrefix {
+
+        final long epochDay;
+        final String text;
+        final byte[] bytes;
+
+        DatePrefix(final long epochDay, final String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.US_ASCII);
+        }
+
+    }
+
+    static final class StringBuilderOutput extends JsonOutput {
+
+        private final StringBuilder builder;
+        private final int start;
+
+        StringBuilderOutput(final StringBuilder builder) {
+            this.builder = builder;
+            this.start = builder.length();
+        }
+
+        @Override
+        JsonOutput append(char c) {
+            builder.append(c);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(String s) {
+            builder.append(s);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(String s, int start, int end) {
+            builder.append(s, start, end);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(int i) {
+            builder.append(i);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(long l) {
+            builder.append(l);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(double d) {
+            builder.append(d);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(boolean b) {
+            builder.append(b);
+            return this;
+        }
+
+        @Override
+        long size() {
+            return builder.length() - start;
+        }
+
+    }
+
+    static final class AppendableOutput extends JsonOutput {
+
+        private final Appendable appendable;
+
+        AppendableOutput(final Appendable appendable) {
+            this.appendable = appendable;
+        }
+
+        @Override
+        JsonOutput append(char c) {
+            try {
+                appendable.append(c);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        JsonOutput append(String s) {
+            try {
+                appendable.append(s);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        JsonOutput append(String s, int start, int end) {
+            try {
+                appendable.append(s, start, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+    }
+
+    /**
+     * Encodes straight into a reusable {@code byte[]} buffer, which is written to the {@link OutputStream} whenever it is full.
+     * Runs of ASCII characters are copied into the buffer at once; only the remaining characters are encoded one by one.
+     */
+    static final class Utf8Output extends JsonOutput {
+
+        static final int DEFAULT_BUFFER_SIZE = 8192;
+
+        private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+        private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+        private static final byte[][] ESCAPE_BYTES = new byte[ESCAPES.length][];
+
+        static {
+            for (int c = 0; c < ESCAPES.length; c++) {
+                if (ESCAPES[c] != null) {
+                    ESCAPE_BYTES[c] = ESCAPES[c].getBytes(StandardCharsets.US_ASCII);
+                }
+            }
+        }
+
+        private final OutputStream outputStream;
+        private final byte[] buffer;
+        private int position;
+        private long drained;
+
+        Utf8Output(final OutputStream outputStream) {
+            this(outputStream, DEFAULT_BUFFER_SIZE);
+        }
+
+        Utf8Output(final OutputStream outputStream, final int bufferSize) {
+            this.outputStream = outputStream;
+            this.buffer = new byte[bufferSize];
+        }
+
+        @Override
+        JsonOutput append(char c) {
+            if (c < 0x80) {
+                require(1);
+                buffer[position++] = (byte) c;
+                return this;
+            }
+            return append(String.valueOf(c));
+        }
+
+        @Override
+        JsonOutput append(String s) {
+            String value = String.valueOf(s);
+            return append(value, 0, value.length());
+        }
+
+        @Override
+        JsonOutput append(String s, int start, int end) {
+            write(s, start, end, false);
+            return this;
+        }
+
+        @Override
+        JsonOutput append(int i) {
+            return append((long) i);
+        }
+
+        @Override
+        JsonOutput append(long l) {
+            if (l == Long.MIN_VALUE) {
+                return append(String.valueOf(l));
+            }
+            require(20);
+            byte[] b = buffer;
+            if (l < 0) {
+                b[position++] = '-';
+                l = -l;
+            }
+            int start = position;
+            do {
+                b[position++] = (byte) ('0' + (int) (l % 10));
+                l /= 10;
+            } while (l != 0);
+            // digits were written backwards
+            for (int i = start, j = position - 1; i < j; i++, j--) {
+                byte tmp = b[i];
+                b[i] = b[j];
+                b[j] = tmp;
+            }
+            return this;
+        }
+
+        @Override
+        JsonOutput append(boolean b) {
+            return append(b ? TRUE : FALSE);
+        }
+
+        @Override
+        JsonOutput appendString(final String s) {
+            append('"');
+            write(s, 0, s.length(), true);
+            return append('"');
+        }
+
+        @Override
+        JsonOutput appendObjectId(final ObjectId objectId) {
+            require(26);
+            byte[] b = buffer;
+            b[position++] = '"';
+            writeHex(objectId.getTimestamp(), 8);
+            writeHex(objectId.getMachineIdentifier(), 6);
+            writeHex(objectId.getProcessIdentifier(), 4);
+            writeHex(objectId.getCounter(), 6);
+            b[position++] = '"';
+            return this;
+        }
+
+        @Override
+        JsonOutput appendBase64(final byte[] data) {
+            require(1);
+            buffer[position++] = '"';
+            int full = data.length - data.length % 3;
+            int i = 0;
+            while (i < full) {
+                // as many groups as fit in the buffer, then drain it
+                int groups = Math.min((full - i) / 3, (buffer.length - position) / 4);
+                if (groups == 0) {
+                    drain();
+                    continue;
+                }
+                byte[] b = buffer;
+                int p = position;
+                for (int end = i + groups * 3; i < end; i += 3) {
+                    int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | data[i + 2] & 0xff;
+                    b[p++] = (byte) BASE64[bits >>> 18];
+                    b[p++] = (byte) BASE64[bits >>> 12 & 0x3f];
+                    b[p++] = (byte) BASE64[bits >>> 6 & 0x3f];
+                    b[p++] = (byte) BASE64[bits & 0x3f];
+                }
+                position = p;
+            }
+            require(5);
+            if (full < data.length) {
+                int bits = (data[full] & 0xff) << 16 | (full + 1 < data.length ? (data[full + 1] & 0xff) << 8 : 0);
+                buffer[position++] = (byte) BASE64[bits >>> 18];
+                buffer[position++] = (byte) BASE64[bits >>> 12 & 0x3f];
+                buffer[position++] = full + 1 < data.length ? (byte) BASE64[bits >>> 6 & 0x3f] : (byte) '=';
+                buffer[position++] = '=';
+            }
+            buffer[position++] = '"';
+            return this;
+        }
+
+        @Override
+        JsonOutput appendDatePrefix(final DatePrefix datePrefix) {
+            return append(datePrefix.bytes);
+        }
+
+        @Override
+        JsonOutput appendDigits(final int value, final int digits) {
+            require(digits);
+            int v = value;
+            for (int i = position + digits - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + v % 10);
+                v /= 10;
+            }
+            position += digits;
+            return this;
+        }
+
+        private void writeHex(final int value, final int digits) {
+            byte[] b = buffer;
+            for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+                b[position++] = (byte) HEX[(value >>> shift) & 0xf];
+            }
+        }
+
+        @Override
+        void flush() {
+            try {
+                drain();
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        long size() {
+            return drained + position;
+        }
+
+        private JsonOutput append(final byte[] bytes) {
+            require(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+            return this;
+        }
+
+        @SuppressWarnings("deprecation")
+        private void write(final String s, final int start, final int end, final boolean escape) {
+            int i = start;
+            while (i < end) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (escape && ESCAPES[c] != null) {
+                        append(ESCAPE_BYTES[c]);
+                        i++;
+                        continue;
+                    }
+                    // fast path: find the run of plain ASCII characters, bounded by the free space in the buffer, and copy it at once
+                    if (position == buffer.length) {
+                        drain();
+                    }
+                    int limit = Math.min(end, i + buffer.length - position);
+                    int runEnd = i + 1;
+                    while (runEnd < limit) {
+                        char r = s.charAt(runEnd);
+                        if (r >= 0x80 || (escape && ESCAPES[r] != null)) {
+                            break;
+                        }
+                        runEnd++;
+                    }
+                    // every char of the run is ASCII, so its low byte is its UTF-8 encoding
+                    s.getBytes(i, runEnd, buffer, position);
+                    position += runEnd - i;
+                    i = runEnd;
+                } else {
+                    i = writeMultibyte(s, i, end);
+                }
+            }
+        }
+
+        private int writeMultibyte(final String s, final int i, final int end) {
+            require(4);
+            byte[] b = buffer;
+            char c = s.charAt(i);
+            if (c < 0x800) {
+                b[position++] = (byte) (0xc0 | (c >> 6));
+                b[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+                b[position++] = (byte) (0xf0 | (codePoint >> 18));
+                b[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                b[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                b[position++] = (byte) (0x80 | (codePoint & 0x3f));
+                return i + 2;
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced the same way String.getBytes(UTF_8) does
+                b[position++] = '?';
+            } else {
+                b[position++] = (byte) (0xe0 | (c >> 12));
+                b[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+            return i + 1;
+        }
+
+        private void require(final int length) {
+            if (position + length > buffer.length) {
+                drain();
+            }
+        }
+
+        private void drain() {
+            if (position > 0) {
+                try {
+                    outputStream.write(buffer, 0, position);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                drained += position;
+                position = 0;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,431 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe, size-bounded cache of the 'standard' JSON format rendered by a {@link JsonParseEngine}, for hot read-mostly documents
+ * (configuration or catalog documents, for instance) that are converted over and over with the same content:
+ * <pre>
+ * {@code JsonParseCache cache = JsonParseCache.builder().maximumWeight(16 * 1024 * 1024).versionField("version").build(); }
+ * </pre>
+ * A document is looked up by its {@code _id} and the value of the {@link Builder#versionField(String) version field}, which the caller
+ * must change whenever the content changes, or else by its content: binary BSON, including {@link RawBsonDocument}, is keyed by its bytes.
+ * Other documents without both fields are rendered every time, not cached.
+ * <p>
+ * The rendered UTF-8 bytes are stored and the least recently used ones are evicted once their total size exceeds the
+ * {@link Builder#maximumWeight(long) maximum weight}.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@SuppressWarnings({"rawtypes"})
+public final class JsonParseCache {
+
+    private static final String ID = "_id";
+
+    private final JsonParseEngine engine;
+    private final long maximumWeight;
+    private final String versionField;
+    private final LinkedHashMap<Object, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private long weight;
+
+    private JsonParseCache(final Builder builder) {
+        this.engine = builder.engine;
+        this.maximumWeight = builder.maximumWeight;
+        this.versionField = builder.versionField;
+    }
+
+    /**
+     * Creates a builder of caches in front of the {@link JsonParseEngine#getDefault() default engine}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the engine the documents are rendered with.
+     *
+     * @return the engine
+     */
+    public JsonParseEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the maximum total size, in bytes, of the rendered documents kept.
+     *
+     * @return the maximum weight
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Gets the field that, along with {@code _id}, identifies the content of a document.
+     *
+     * @return the version field, {@code null} if documents are keyed by their content only
+     */
+    public String getVersionField() {
+        return versionField;
+    }
+
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format, as {@link JsonParseEngine#parse(Map)},
+     * rendering it only if it is not cached yet.
+     *
+     * @param map {@link BsonDocument}, {@link RawBsonDocument} or {@link Document}
+     * @return 'standard' JSON format
+     */
+    public String parse(final Map map) {
+        return new String(render(map), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format, as {@link JsonParseEngine#parse(Map, Appendable)},
+     * rendering it only if it is not cached yet.
+     *
+     * @param map        {@link BsonDocument}, {@link RawBsonDocument} or {@link Document}
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public void parse(final Map map, final Appendable appendable) {
+        try {
+            appendable.append(parse(map));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format, as {@link JsonParseEngine#parse(Map, OutputStream)},
+     * writing the cached bytes as they are. The stream is flushed but not closed.
+     *
+     * @param map          {@link BsonDocument}, {@link RawBsonDocument} or {@link Document}
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parse(final Map map, final OutputStream outputStream) {
+        write(render(map), outputStream);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format, as {@link JsonParseEngine#parse(byte[])},
+     * rendering it only if it is not cached yet.
+     *
+     * @param bson the binary BSON document
+     * @return 'standard' JSON format
+     */
+    public String parse(final byte[] bson) {
+        return new String(render(bson), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format, as {@link JsonParseEngine#parse(byte[], OutputStream)},
+     * writing the cached bytes as they are. The stream is flushed but not closed.
+     *
+     * @param bson         the binary BSON document
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parse(final byte[] bson, final OutputStream outputStream) {
+        write(render(bson), outputStream);
+    }
+
+    /**
+     * Gets the number of conversions answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of conversions of cacheable documents that had to be rendered.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of rendered documents evicted to stay within the maximum weight.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of rendered documents kept.
+     *
+     * @return the size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the total size, in bytes, of the rendered documents kept.
+     *
+     * @return the weight
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Discards every rendered document, leaving the counters untouched.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private byte[] render(final Map map) {
+        Object key = keyOf(map);
+        if (key == null) {
+            return render(map, null);
+        }
+        byte[] json = get(key);
+        return json != null ? json : render(map, key);
+    }
+
+    private byte[] render(final Map map, final Object key) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        engine.parse(map, outputStream);
+        byte[] json = outputStream.toByteArray();
+        if (key != null) {
+            put(key, json);
+        }
+        return json;
+    }
+
+    private byte[] render(final byte[] bson) {
+        if (bson == null) {
+            return render((Map) null, null);
+        }
+        Object key = new ContentKey(bson, 0, bson.length);
+        byte[] json = get(key);
+        if (json == null) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            engine.parse(bson, outputStream);
+            json = outputStream.toByteArray();
+            put(key, json);
+        }
+        return json;
+    }
+
+    private Object keyOf(final Map map) {
+        if (map == null) {
+            return null;
+        }
+        if (versionField != null) {
+            Object id = map.get(ID);
+            Object version = map.get(versionField);
+            if (id != null && version != null) {
+                return Arrays.asList(id, version);
+            }
+        }
+        if (map instanceof RawBsonDocument) {
+            ByteBuffer buffer = ((RawBsonDocument) map).getByteBuffer().asNIO();
+            if (buffer.hasArray()) {
+                return new ContentKey(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            byte[] bson = new byte[buffer.remaining()];
+            buffer.get(bson);
+            return new ContentKey(bson, 0, bson.length);
+        }
+        return null;
+    }
+
+    private synchronized byte[] get(final Object key) {
+        byte[] json = entries.get(key);
+        (json != null ? hitCount : missCount).incrementAndGet();
+        return json;
+    }
+
+    private synchronized void put(final Object key, final byte[] json) {
+        if (json.length > maximumWeight) {
+            return;
+        }
+        // the looked up key wraps the bytes of the caller, only the one kept is a copy
+        byte[] previous = entries.put(key instanceof ContentKey ? ((ContentKey) key).copy() : key, json);
+        weight += json.length - (previous != null ? previous.length : 0);
+        for (Iterator<byte[]> iterator = entries.values().iterator(); weight > maximumWeight; ) {
+            weight -= iterator.next().length;
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private static void write(final byte[] json, final OutputStream outputStream) {
+        try {
+            outputStream.write(json);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Binary BSON compared byte by byte, so that a hash collision can never answer another document.
+     * It wraps a range of the given bytes without copying them.
+     */
+    private static final class ContentKey {
+
+        private final byte[] bson;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        private ContentKey(final byte[] bson, final int offset, final int length) {
+            this(bson, offset, length, hashCode(bson, offset, length));
+        }
+
+        private ContentKey(final byte[] bson, final int offset, final int length, final int hash) {
+            this.bson = bson;
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        private ContentKey copy() {
+            return new ContentKey(Arrays.copyOfRange(bson, offset, offset + length), 0, length, hash);
+        }
+
+        private static int hashCode(final byte[] bson, final int offset, final int length) {
+            // the same as Arrays.hashCode(byte[]) of the range
+            int hash = 1;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                hash = 31 * hash + bson[i];
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof ContentKey)) {
+                return false;
+            }
+            ContentKey other = (ContentKey) o;
+            if (hash != other.hash || length != other.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bson[offset + i] != other.bson[other.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    /**
+     * A builder for {@link JsonParseCache}.
+     */
+    public static final class Builder {
+
+        private JsonParseEngine engine = JsonParseEngine.getDefault();
+        private long maximumWeight = 1024 * 1024;
+        private String versionField;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the engine the documents are rendered with. Defaults to {@link JsonParseEngine#getDefault()}.
+         *
+         * @param engine the engine
+         * @return this
+         */
+        public Builder engine(final JsonParseEngine engine) {
+            if (engine == null) {
+                throw new IllegalArgumentException("engine can not be null");
+            }
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total size, in bytes, of the rendered documents kept. Documents rendered larger than it are never cached.
+         * Defaults to 1 MiB.
+         *
+         * @param maximumWeight the maximum weight
+         * @return this
+         */
+        public Builder maximumWeight(final long maximumWeight) {
+            if (maximumWeight < 1) {
+                throw new IllegalArgumentException("maximumWeight must be greater than zero");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Sets the field that, along with {@code _id}, identifies the content of a document, so that documents are looked up
+         * without being read. Defaults to {@code null}, keying only binary BSON, by its content.
+         *
+         * @param versionField the version field, or {@code null}
+         * @return this
+         */
+        public Builder versionField(final String versionField) {
+            this.versionField = versionField;
+            return this;
+        }
+
+        /**
+         * Builds the cache.
+         *
+         * @return the cache
+         */
+        public JsonParseCache build() {
+            return new JsonParseCache(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,1478 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.*;
+import org.bson.codecs.BsonArrayCodec;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.BsonValueCodecProvider;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.json.JsonReader;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+
+import static br.com.thiaguten.json.JsonParseHelper.*;
+
+/**
+ * Immutable and thread-safe engine behind {@link JsonParseHelper}, converting MongoDB BSON strict/shell mode into 'standard' JSON format.
+ * <p>
+ * The codecs and the {@link DecoderContext} used to decode JSON strings are created once, when the engine is built,
+ * so a single instance is meant to be built once and shared across threads:
+ * <pre>
+ * {@code JsonParseEngine engine = JsonParseEngine.builder().codecRegistry(registry).build(); }
+ * </pre>
+ * The buffers that the conversions returning a {@link String} render into are pooled by the engine and presized to the typical output.
+ * The static methods of {@link JsonParseHelper} delegate to {@link #getDefault()}.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class JsonParseEngine {
+
+    private static final JsonParseEngine DEFAULT = builder().build();
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final String MIN_KEY = "{\"$minKey\":1}";
+    private static final String MAX_KEY = "{\"$maxKey\":1}";
+    private static final String PLAIN_JSON_TOKENS = "{}[]:,-+.eE";
+
+    private final CodecRegistry codecRegistry;
+    private final BsonArrayCodec bsonArrayCodec;
+    private final BsonDocumentCodec bsonDocumentCodec;
+    private final DecoderContext decoderContext;
+    private final int parallelThreshold;
+    private final Executor executor;
+    private final Map<Class<?>, JsonValueWriter<?>> writers;
+    private final Projection projection;
+    private final Projection.Node root;
+    private final boolean plainJsonPassThrough;
+    private final JsonParseListener listener;
+    private final BufferPool stringBuffers = new BufferPool();
+    private final BufferPool listBuffers = new BufferPool();
+    private final BufferPool documentBuffers = new BufferPool();
+    private final BufferPool bsonBuffers = new BufferPool();
+    private final BufferPool batchBuffers = new BufferPool();
+    private final BufferPool chunkBuffers = new BufferPool();
+    private final ClassValue<ValueRenderer> renderers = new ClassValue<ValueRenderer>() {
+        @Override
+        protected ValueRenderer computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private JsonParseEngine(final Builder builder) {
+        this.codecRegistry = builder.codecRegistry;
+        this.bsonArrayCodec = new BsonArrayCodec(codecRegistry);
+        this.bsonDocumentCodec = new BsonDocumentCodec(codecRegistry);
+        this.decoderContext = DecoderContext.builder().build();
+        this.parallelThreshold = builder.parallelThreshold;
+        this.executor = builder.executor;
+        this.writers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.writers));
+        this.projection = builder.projection;
+        this.root = projection != null ? projection.getRoot() : null;
+        this.plainJsonPassThrough = builder.plainJsonPassThrough;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * Gets the engine, with the default settings, shared by the static methods of {@link JsonParseHelper}.
+     *
+     * @return the default engine
+     */
+    public static JsonParseEngine getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a builder for an engine.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the codec registry used to decode JSON strings into {@link BsonDocument} and {@link BsonArray}.
+     *
+     * @return the codec registry
+     */
+    public CodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    /**
+     * Gets the minimum number of elements of a top-level list, or of documents in a batch, for it to be converted in parallel.
+     *
+     * @return the parallel threshold, {@link Integer#MAX_VALUE} if conversions are always sequential
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Gets the executor that renders the chunks of a parallel conversion.
+     *
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Gets the projection selecting the fields that are rendered.
+     *
+     * @return the projection, {@code null} if every field is rendered
+     */
+    public Projection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Gets whether JSON strings without any BSON extended type are returned as they are.
+     *
+     * @return {@code true} if plain JSON strings are passed through
+     */
+    public boolean isPlainJsonPassThrough() {
+        return plainJsonPassThrough;
+    }
+
+    /**
+     * Gets the listener notified of every conversion.
+     *
+     * @return the listener, {@code null} if conversions are not instrumented
+     */
+    public JsonParseListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Parses strict mode representations of BSON types conform to the <a href="http://www.json.org">JSON RFC spec</a>
+     * and MongoDB shell BSON document query results into 'standard' JSON format without strict BSON representations or BSON MongoDB types.
+     *
+     * @param json the JSON to parse
+     * @return 'standard' JSON format
+     */
+    public String parse(final String json) {
+        long start = start();
+        if (json != null) {
+            char token = firstToken(json);
+            if (converts(token, json)) {
+                StringBuilder builder = stringBuffers.acquire(json.length());
+                JsonOutput output = JsonOutput.of(builder);
+                parse(json, token, output);
+                report(json, start, output);
+                return stringBuffers.release(builder);
+            }
+        }
+        return passThrough(json, start);
+    }
+
+    /**
+     * Parses strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json       the JSON to parse
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public void parse(final String json, final Appendable appendable) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(appendable);
+        parse(json, output);
+        report(json, start, output);
+    }
+
+    /**
+     * Parses strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json         the JSON to parse
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parse(final String json, final OutputStream outputStream) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(outputStream);
+        parse(json, output);
+        output.flush();
+        report(json, start, output);
+    }
+
+    /**
+     * Transcodes strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format
+     * in a single pass, driving a {@link JsonReader} token by token instead of building an intermediate {@link BsonDocument} tree.
+     * <p>
+     * The result is the same as {@link #parse(String)}, but memory use is bounded by the nesting depth of the input rather than by its size.
+     * The one difference is a document with duplicate keys: every key is written as it is read, so {@code {"a":1, "a":2}} is
+     * transcoded as it is, while {@link #parse(String)} keeps only the last value, giving {@code {"a":2}}.
+     *
+     * @param json the JSON to transcode
+     * @return 'standard' JSON format
+     */
+    public String transcode(final String json) {
+        long start = start();
+        if (json != null) {
+            char token = firstToken(json);
+            if (converts(token, json)) {
+                StringBuilder builder = stringBuffers.acquire(json.length());
+                JsonOutput output = JsonOutput.of(builder);
+                transcode(new JsonReader(json), output);
+                report(json, start, output);
+                return stringBuffers.release(builder);
+            }
+        }
+        return passThrough(json, start);
+    }
+
+    /**
+     * Transcodes strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format
+     * in a single pass, writing each token to the given {@link Appendable} as soon as it is read.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json       the JSON to transcode
+     * @param appendable where the 'standard' JSON format is written to
+     * @see #transcode(String)
+     */
+    public void transcode(final String json, final Appendable appendable) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(appendable);
+        transcode(json, output);
+        report(json, start, output);
+    }
+
+    /**
+     * Transcodes strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format
+     * in a single pass, writing each token UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json         the JSON to transcode
+     * @param outputStream where the 'standard' JSON format is written to
+     * @see #transcode(String)
+     */
+    public void transcode(final String json, final OutputStream outputStream) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(outputStream);
+        transcode(json, output);
+        output.flush();
+        report(json, start, output);
+    }
+
+    /**
+     * Parses {@link BsonArray} into 'standard' JSON format without strict BSON representations or BSON MongoDB types.
+     *
+     * @param list {@link BsonArray} or {@link List}
+     * @return 'standard' JSON format
+     */
+    public String parse(final List list) {
+        StringBuilder builder = listBuffers.acquire(0);
+        parse(list, builder);
+        return listBuffers.release(builder);
+    }
+
+    /**
+     * Parses {@link BsonArray} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param list       {@link BsonArray} or {@link List}
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public void parse(final List list, final Appendable appendable) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(appendable);
+        parseRoot(list, output);
+        report(list, start, output);
+    }
+
+    /**
+     * Parses {@link BsonArray} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param list         {@link BsonArray} or {@link List}
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parse(final List list, final OutputStream outputStream) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(outputStream);
+        parseRoot(list, output);
+        output.flush();
+        report(list, start, output);
+    }
+
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format without strict BSON representations or BSON MongoDB types.
+     *
+     * @param map {@link BsonDocument}, {@link RawBsonDocument} or {@link Document}
+     * @return 'standard' JSON format
+     */
+    public String parse(final Map map) {
+        StringBuilder builder = documentBuffers.acquire(0);
+        parse(map, builder);
+        return documentBuffers.release(builder);
+    }
+
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param map        {@link BsonDocument} or {@link Document}
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public void parse(final Map map, final Appendable appendable) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(appendable);
+        parse(map, root, output);
+        report(map, start, output);
+    }
+
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param map          {@link BsonDocument} or {@link Document}
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parse(final Map map, final OutputStream outputStream) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(outputStream);
+        parse(map, root, output);
+        output.flush();
+        report(map, start, output);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * walking the bytes with a {@link BsonBinaryReader} instead of decoding them into a {@link BsonDocument} first.
+     *
+     * @param bson the binary BSON document
+     * @return 'standard' JSON format
+     */
+    public String parse(final byte[] bson) {
+        StringBuilder builder = bsonBuffers.acquire(bson != null ? bson.length : 0);
+        parse(bson, builder);
+        return bsonBuffers.release(builder);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param bson       the binary BSON document
+     * @param appendable where the 'standard' JSON format is written to
+     * @see #parse(byte[])
+     */
+    public void parse(final byte[] bson, final Appendable appendable) {
+        parse(bson != null ? ByteBuffer.wrap(bson) : null, appendable);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param bson         the binary BSON document
+     * @param outputStream where the 'standard' JSON format is written to
+     * @see #parse(byte[])
+     */
+    public void parse(final byte[] bson, final OutputStream outputStream) {
+        parse(bson != null ? ByteBuffer.wrap(bson) : null, outputStream);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * walking the bytes with a {@link BsonBinaryReader} instead of decoding them into a {@link BsonDocument} first.
+     * The document is read from the buffer's current position; the position, limit and byte order of the buffer are left untouched.
+     *
+     * @param bson the binary BSON document
+     * @return 'standard' JSON format
+     */
+    public String parse(final ByteBuffer bson) {
+        StringBuilder builder = bsonBuffers.acquire(bson != null ? bson.remaining() : 0);
+        parse(bson, builder);
+        return bsonBuffers.release(builder);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param bson       the binary BSON document
+     * @param appendable where the 'standard' JSON format is written to
+     * @see #parse(ByteBuffer)
+     */
+    public void parse(final ByteBuffer bson, final Appendable appendable) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(appendable);
+        parse(bson, root, output);
+        report(bson, start, output);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param bson         the binary BSON document
+     * @param outputStream where the 'standard' JSON format is written to
+     * @see #parse(ByteBuffer)
+     */
+    public void parse(final ByteBuffer bson, final OutputStream outputStream) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(outputStream);
+        parse(bson, root, output);
+        output.flush();
+        report(bson, start, output);
+    }
+
+    /**
+     * Parses a batch of {@link BsonDocument}s or {@link Document}s, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, all documents rendered into the same buffer.
+     *
+     * @param documents the documents
+     * @param format    how the documents are laid out
+     * @return 'standard' JSON format
+     */
+    public String parseBatch(final Iterable<? extends Map> documents, final BatchFormat format) {
+        StringBuilder builder = batchBuffers.acquire(0);
+        parseBatch(documents, format, builder);
+        return batchBuffers.release(builder);
+    }
+
+    /**
+     * Parses a batch of {@link BsonDocument}s or {@link Document}s into 'standard' JSON format laid out as the given {@link BatchFormat},
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param documents  the documents
+     * @param format     how the documents are laid out
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public void parseBatch(final Iterable<? extends Map> documents, final BatchFormat format, final Appendable appendable) {
+        parseBatch(documents.iterator(), format, appendable);
+    }
+
+    /**
+     * Parses a batch of {@link BsonDocument}s or {@link Document}s into 'standard' JSON format laid out as the given {@link BatchFormat},
+     * writing the result UTF-8 encoded to the given {@link OutputStream} through a single buffer reused for every document.
+     * The stream is flushed but not closed.
+     *
+     * @param documents    the documents
+     * @param format       how the documents are laid out
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parseBatch(final Iterable<? extends Map> documents, final BatchFormat format, final OutputStream outputStream) {
+        parseBatch(documents.iterator(), format, outputStream);
+    }
+
+    /**
+     * Parses the remaining {@link BsonDocument}s or {@link Document}s of an iterator, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance).
+     *
+     * @param documents  the documents
+     * @param format     how the documents are laid out
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public void parseBatch(final Iterator<? extends Map> documents, final BatchFormat format, final Appendable appendable) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(appendable);
+        parseBatch(documents, format, output);
+        report(documents, start, output);
+    }
+
+    /**
+     * Parses the remaining {@link BsonDocument}s or {@link Document}s of an iterator, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, writing the result UTF-8 encoded to the given {@link OutputStream}
+     * through a single buffer reused for every document. The stream is flushed but not closed.
+     *
+     * @param documents    the documents
+     * @param format       how the documents are laid out
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public void parseBatch(final Iterator<? extends Map> documents, final BatchFormat format, final OutputStream outputStream) {
+        long start = start();
+        JsonOutput output = JsonOutput.of(outputStream);
+        parseBatch(documents, format, output);
+        output.flush();
+        report(documents, start, output);
+    }
+
+    /**
+     * Parses the remaining {@link BsonDocument}s or {@link Document}s of an iterator, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, UTF-8 encoded into chunks of about the given size that are only rendered when asked for,
+     * so that a non-blocking server can write a huge result as fast as its client reads it.
+     * <p>
+     * Every chunk but the last holds whole documents adding up to at least the chunk size; a single document is never split,
+     * so memory use is bounded by the chunk size or the largest document, whichever is greater, regardless of the number of documents.
+     * The chunks share one buffer: a chunk is only valid until the next call to {@link Iterator#hasNext()} or {@link Iterator#next()}.
+     * Documents are pulled from the given iterator, and rendered, on the thread asking for the next chunk.
+     * Chunked conversions are neither parallel nor reported to the {@link Builder#listener(JsonParseListener) listener}.
+     *
+     * @param documents the documents
+     * @param format    how the documents are laid out
+     * @param chunkSize the minimum size of a chunk, in bytes
+     * @return the chunks, in order
+     */
+    public Iterator<ByteBuffer> parseChunked(final Iterator<? extends Map> documents, final BatchFormat format, final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be greater than zero");
+        }
+        return new ChunkIterator(documents, format, chunkSize);
+    }
+
+    // PRIVATE METHODS
+
+    private long start() {
+        return listener != null ? System.nanoTime() : 0L;
+    }
+
+    private void report(final Object input, final long start, final JsonOutput output) {
+        if (listener != null) {
+            listener.onConversion(new JsonParseEvent(input, System.nanoTime() - start, output.size()));
+        }
+    }
+
+    /**
+     * Returns the JSON that needs no converting as it is, reported like any other conversion.
+     */
+    private String passThrough(final String json, final long start) {
+        if (listener != null) {
+            listener.onConversion(new JsonParseEvent(json, System.nanoTime() - start, json != null ? json.length() : 0));
+        }
+        return json != null ? json : NULL;
+    }
+
+    private void parse(final String json, final JsonOutput output) {
+        if (json != null) {
+            char token = firstToken(json);
+            if (converts(token, json)) {
+                parse(json, token, output);
+            } else {
+                output.append(json);
+            }
+        }
+    }
+
+    /**
+     * Parses a document or an array, given its first token, already known to need converting.
+     */
+    private void parse(final String json, final char token, final JsonOutput output) {
+        if (token == '{') {
+            parse(parseBsonDocument(json), root, output); // type safe
+        } else {
+            parseRoot(parseBsonArray(json), output); // type safe
+        }
+    }
+
+    void transcode(final String json, final JsonOutput output) {
+        if (json != null) {
+            if (converts(firstToken(json), json)) {
+                transcode(new JsonReader(json), output);
+            } else {
+                output.append(json);
+            }
+        }
+    }
+
+    /**
+     * Transcodes a document or an array already known to need converting.
+     */
+    private void transcode(final JsonReader reader, final JsonOutput output) {
+        reader.readBsonType();
+        transcode(reader, root, output);
+    }
+
+    /**
+     * Gets the first character of the JSON that is not a whitespace, as {@link String#trim()} does, without copying it.
+     */
+    static char firstToken(final String json) {
+        for (int i = 0, length = json.length(); i < length; i++) {
+            char c = json.charAt(i);
+            if (c > ' ') {
+                return c;
+            }
+        }
+        return ' ';
+    }
+
+    private boolean converts(final char token, final String json) {
+        return (token == '{' || token == '[') && !(plainJsonPassThrough && root == null && isPlainJson(json));
+    }
+
+    /**
+     * Scans the JSON, without decoding nor copying it, for anything but plain JSON tokens: a name or a string starting with {@code $}
+     * (strict mode types such as {@code $oid} or {@code $date}), or a bare word other than {@code true}, {@code false} and {@code null}
+     * (shell mode types such as {@code ObjectId(} or {@code ISODate(}, regular expressions, unquoted names).
+     * The JSON is not validated.
+     */
+    private static boolean isPlainJson(final String json) {
+        for (int i = 0, length = json.length(); i < length; i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                if (i + 1 < length && json.charAt(i + 1) == '$') {
+                    return false;
+                }
+                for (i++; i < length && (c = json.charAt(i)) != '"'; i++) {
+                    if (c == '\\') {
+                        i++;
+                    }
+                }
+                if (i >= length) {
+                    return false;
+                }
+            } else if (c == 't' && json.startsWith("true", i) || c == 'n' && json.startsWith("null", i)) {
+                i += 3;
+            } else if (c == 'f' && json.startsWith("false", i)) {
+                i += 4;
+            } else if (!(c <= ' ' || c >= '0' && c <= '9' || PLAIN_JSON_TOKENS.indexOf(c) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parseBatch(final Iterator<? extends Map> documents, final BatchFormat format, final JsonOutput output) {
+        output.append(format.getStart());
+        if (parallelThreshold < Integer.MAX_VALUE) {
+            // look ahead, the batch stays sequential unless it reaches the threshold
+            List<Object> head = new ArrayList<>();
+            while (head.size() < parallelThreshold && documents.hasNext()) {
+                head.add(documents.next());
+            }
+            if (head.size() >= parallelThreshold) {
+                parseParallel(head, documents, Math.max(1, parallelThreshold / parallelism()), format.getSeparator(), format.getTerminator(), true, output);
+            } else {
+                parseChunk(head, format.getSeparator(), format.getTerminator(), true, output);
+            }
+        } else {
+            boolean first = true;
+            while (documents.hasNext()) {
+                if (!first) {
+                    output.append(format.getSeparator());
+                }
+                parse(documents.next(), root, output);
+                output.append(format.getTerminator());
+                first = false;
+            }
+        }
+        output.append(format.getEnd());
+    }
+
+    private void parseRoot(final List list, final JsonOutput output) {
+        if (list != null && list.size() >= parallelThreshold) {
+            int chunkSize = (list.size() + CHUNKS_PER_THREAD * parallelism() - 1) / (CHUNKS_PER_THREAD * parallelism());
+            output.append(JSON_ARRAY_START_TOKEN);
+            if (list instanceof RandomAccess) {
+                parseParallel(list, Collections.emptyIterator(), chunkSize, COMMA, "", false, output);
+            } else {
+                // chunks of sublists would walk the list on every get, they are copied while iterating instead
+                parseParallel(Collections.emptyList(), list.iterator(), chunkSize, COMMA, "", false, output);
+            }
+            output.append(JSON_ARRAY_END_TOKEN);
+        } else {
+            parse(list, root, output);
+        }
+    }
+
+    /**
+     * Renders the head and then the rest of the values in chunks on the executor, each chunk into its own buffer,
+     * and writes the chunks in order as they complete, keeping a bounded number of chunks in flight.
+     */
+    private void parseParallel(final List<?> head, final Iterator<?> rest, final int chunkSize, final String separator, final String terminator, final boolean documents, final JsonOutput output) {
+        int maxPending = CHUNKS_PER_THREAD * parallelism();
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        boolean first = true;
+        try {
+            for (int from = 0, size = head.size(); from < size; from += chunkSize) {
+                pending.add(submitChunk(head.subList(from, Math.min(size, from + chunkSize)), separator, terminator, documents));
+                if (pending.size() >= maxPending) {
+                    first = writeChunk(pending.poll(), first, separator, output);
+                }
+            }
+            while (rest.hasNext()) {
+                List<Object> chunk = new ArrayList<>(chunkSize);
+                do {
+                    chunk.add(rest.next());
+                } while (chunk.size() < chunkSize && rest.hasNext());
+                pending.add(submitChunk(chunk, separator, terminator, documents));
+                if (pending.size() >= maxPending) {
+                    first = writeChunk(pending.poll(), first, separator, output);
+                }
+            }
+            while (!pending.isEmpty()) {
+                first = writeChunk(pending.poll(), first, separator, output);
+            }
+        } finally {
+            for (Future<String> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Future<String> submitChunk(final List<?> chunk, final String separator, final String terminator, final boolean documents) {
+        return submit(() -> renderChunk(chunk, separator, terminator, documents));
+    }
+
+    /**
+     * Runs the task on the executor. On a {@link ForkJoinPool} it runs as a {@link ForkJoinTask}, forked when the caller is
+     * itself a worker of that pool, so that a worker waiting on it helps running the pending tasks instead of blocking,
+     * which would deadlock the pool once every worker waits.
+     */
+    <T> Future<T> submit(final Callable<T> callable) {
+        if (executor instanceof ForkJoinPool) {
+            ForkJoinTask<T> task = ForkJoinTask.adapt(callable);
+            if (ForkJoinTask.getPool() == executor) {
+                task.fork();
+            } else {
+                ((ForkJoinPool) executor).execute(task);
+            }
+            return task;
+        }
+        FutureTask<T> task = new FutureTask<>(callable);
+        executor.execute(task);
+        return task;
+    }
+
+    private String renderChunk(final List<?> chunk, final String separator, final String terminator, final boolean documents) {
+        StringBuilder builder = chunkBuffers.acquire(0);
+        parseChunk(chunk, separator, terminator, documents, JsonOutput.of(builder));
+        return chunkBuffers.release(builder);
+    }
+
+    private void parseChunk(final List<?> chunk, final String separator, final String terminator, final boolean documents, final JsonOutput output) {
+        for (int i = 0, size = chunk.size(); i < size; i++) {
+            if (i > 0) {
+                output.append(separator);
+            }
+            if (documents) {
+                parse((Map) chunk.get(i), root, output);
+            } else {
+                checkInstance(chunk.get(i), root, output);
+            }
+            output.append(terminator);
+        }
+    }
+
+    private static boolean writeChunk(final Future<String> future, final boolean first, final String separator, final JsonOutput output) {
+        String chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting for a parallel conversion", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        if (!first) {
+            output.append(separator);
+        }
+        output.append(chunk);
+        return false;
+    }
+
+    int parallelism() {
+        return executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+    }
+
+    private BsonArray parseBsonArray(final String json) {
+        return bsonArrayCodec.decode(new JsonReader(json), decoderContext);
+    }
+
+    private BsonDocument parseBsonDocument(final String json) {
+        return bsonDocumentCodec.decode(new JsonReader(json), decoderContext);
+    }
+
+    private void parse(final ByteBuffer bson, final Projection.Node node, final JsonOutput output) {
+        if (bson == null) {
+            output.append(JSON_OBJECT_START_TOKEN).append(JSON_OBJECT_END_TOKEN);
+            return;
+        }
+        // duplicate, because the reader changes the position and the byte order of the buffer
+        BsonBinaryReader reader = new BsonBinaryReader(bson.duplicate());
+        try {
+            reader.readBsonType();
+            transcode(reader, node, output);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void transcode(final BsonReader reader, final Projection.Node node, final JsonOutput output) {
+        switch (reader.getCurrentBsonType()) {
+            case REGULAR_EXPRESSION:
+                BsonRegularExpression bsonRegularExpression = reader.readRegularExpression();
+                appendRegularExpression(bsonRegularExpression.getPattern(), bsonRegularExpression.getOptions(), output);
+                break;
+            case NULL:
+                reader.readNull();
+                output.append(NULL);
+                break;
+            case OBJECT_ID:
+                output.appendObjectId(reader.readObjectId());
+                break;
+            case DATE_TIME:
+                output.appendDateTime(reader.readDateTime());
+                break;
+            case STRING:
+                output.appendString(reader.readString());
+                break;
+            case INT32:
+                output.append(reader.readInt32());
+                break;
+            case INT64:
+                output.append(reader.readInt64());
+                break;
+            case DOUBLE:
+                output.append(reader.readDouble());
+                break;
+            case BOOLEAN:
+                output.append(reader.readBoolean());
+                break;
+            case ARRAY:
+                reader.readStartArray();
+                output.append(JSON_ARRAY_START_TOKEN);
+                for (int index = 0, written = 0; reader.readBsonType() != BsonType.END_OF_DOCUMENT; index++) {
+                    Projection.Node child = node == null || node == root ? node : node.select(index);
+                    if (skips(child, reader.getCurrentBsonType())) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    if (written++ > 0) {
+                        output.append(COMMA);
+                    }
+                    transcode(reader, child, output);
+                }
+                reader.readEndArray();
+                output.append(JSON_ARRAY_END_TOKEN);
+                break;
+            case DOCUMENT:
+                reader.readStartDocument();
+                output.append(JSON_OBJECT_START_TOKEN);
+                for (boolean first = true; reader.readBsonType() != BsonType.END_OF_DOCUMENT; ) {
+                    String name = reader.readName();
+                    Projection.Node child = node == null ? null : node.select(name);
+                    if (skips(child, reader.getCurrentBsonType())) {
+                        // not decoded at all
+                        reader.skipValue();
+                        continue;
+                    }
+                    if (!first) {
+                        output.append(COMMA);
+                    }
+                    output.appendString(name).append(COLON);
+                    transcode(reader, child, output);
+                    first = false;
+                }
+                reader.readEndDocument();
+                output.append(JSON_OBJECT_END_TOKEN);
+                break;
+            case DECIMAL128:
+                appendDecimal128(reader.readDecimal128(), output);
+                break;
+            case BINARY:
+                output.appendBase64(reader.readBinaryData().getData());
+                break;
+            case TIMESTAMP:
+                BsonTimestamp bsonTimestamp = reader.readTimestamp();
+                appendTimestamp(bsonTimestamp.getTime(), bsonTimestamp.getInc(), output);
+                break;
+            case SYMBOL:
+                output.appendString(reader.readSymbol());
+                break;
+            case JAVASCRIPT:
+                output.appendString(reader.readJavaScript());
+                break;
+            case JAVASCRIPT_WITH_SCOPE:
+                output.appendString(reader.readJavaScriptWithScope());
+                // the scope is not rendered
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    reader.skipName();
+                    reader.skipValue();
+                }
+                reader.readEndDocument();
+                break;
+            case DB_POINTER:
+                BsonDbPointer bsonDbPointer = reader.readDBPointer();
+                appendDbPointer(bsonDbPointer.getNamespace(), bsonDbPointer.getId(), output);
+                break;
+            case MIN_KEY:
+                reader.readMinKey();
+                output.append(MIN_KEY);
+                break;
+            case MAX_KEY:
+                reader.readMaxKey();
+                output.append(MAX_KEY);
+                break;
+            case UNDEFINED:
+                reader.readUndefined();
+                output.append(NULL);
+                break;
+            default:
+                // NOP, the same as checkInstance
+                reader.skipValue();
+        }
+    }
+
+    private void appendRegularExpression(final String pattern, final String options, final JsonOutput output) {
+        String consolidate = !options.trim().isEmpty() ? pattern + SLASH + options : pattern;
+        output.appendString(consolidate);
+    }
+
+    private void parse(final List list, final Projection.Node node, final JsonOutput output) {
+        output.append(JSON_ARRAY_START_TOKEN);
+        if (list != null) {
+            if (node != null && node != root) {
+                int index = 0;
+                boolean first = true;
+                for (Object value : list) {
+                    Projection.Node child = node.select(index++);
+                    if (skips(child, value)) {
+                        continue;
+                    }
+                    if (!first) {
+                        output.append(COMMA);
+                    }
+                    checkInstance(value, child, output);
+                    first = false;
+                }
+            } else if (list instanceof RandomAccess) {
+                for (int i = 0, size = list.size(); i < size; i++) {
+                    if (i > 0) {
+                        output.append(COMMA);
+                    }
+                    checkInstance(list.get(i), node, output);
+                }
+            } else {
+                boolean first = true;
+                for (Object value : list) {
+                    if (!first) {
+                        output.append(COMMA);
+                    }
+                    checkInstance(value, node, output);
+                    first = false;
+                }
+            }
+        }
+        output.append(JSON_ARRAY_END_TOKEN);
+    }
+
+    private void parse(final Map map, final Projection.Node node, final JsonOutput output) {
+        if (map instanceof RawBsonDocument) {
+            // walk the raw bytes rather than decoding every entry
+            parse(((RawBsonDocument) map).getByteBuffer().asNIO(), node, output);
+            return;
+        }
+        output.append(JSON_OBJECT_START_TOKEN);
+        if (map != null) {
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                Projection.Node child = node == null ? null : node.select(name);
+                if (skips(child, entry.getValue())) {
+                    continue;
+                }
+                if (!first) {
+                    output.append(COMMA);
+                }
+                output.appendString(name).append(COLON);
+                checkInstance(entry.getValue(), child, output);
+                first = false;
+            }
+        }
+        output.append(JSON_OBJECT_END_TOKEN);
+    }
+
+    private void checkInstance(Object value, Projection.Node node, JsonOutput output) {
+        if (value == null) {
+            output.append(NULL);
+            return;
+        }
+        renderers.get(value.getClass()).render(value, node, output);
+    }
+
+    /**
+     * Whether the value selected with the node is not rendered, either because it is skipped or because it is neither a document
+     * nor an array and the node only includes some of its fields.
+     */
+    private static boolean skips(final Projection.Node node, final Object value) {
+        return node != null && (node == Projection.Node.SKIP || !node.rendersScalar() && !isContainer(value));
+    }
+
+    private static boolean skips(final Projection.Node node, final BsonType bsonType) {
+        return node != null && (node == Projection.Node.SKIP || !node.rendersScalar() && bsonType != BsonType.DOCUMENT && bsonType != BsonType.ARRAY);
+    }
+
+    private static boolean isContainer(final Object value) {
+        return value instanceof Map || value instanceof List
+                || value instanceof BsonValue && (((BsonValue) value).isDocument() || ((BsonValue) value).isArray());
+    }
+
+    private void checkBsonValue(BsonValue bsonValue, Projection.Node node, JsonOutput output) {
+        BsonType bsonType = bsonValue.getBsonType();
+        switch (bsonType) {
+            case REGULAR_EXPRESSION:
+                BsonRegularExpression bsonRegularExpression = bsonValue.asRegularExpression();
+                appendRegularExpression(bsonRegularExpression.getPattern(), bsonRegularExpression.getOptions(), output);
+                break;
+            case NULL:
+                output.append(NULL);
+                break;
+            case OBJECT_ID:
+                output.appendObjectId(bsonValue.asObjectId().getValue());
+                break;
+            case DATE_TIME:
+                output.appendDateTime(bsonValue.asDateTime().getValue());
+                break;
+            case STRING:
+                output.appendString(bsonValue.asString().getValue());
+                break;
+            case INT32:
+                output.append(bsonValue.asInt32().getValue());
+                break;
+            case INT64:
+                output.append(bsonValue.asInt64().getValue());
+                break;
+            case DOUBLE:
+                output.append(bsonValue.asDouble().getValue());
+                break;
+            case BOOLEAN:
+                output.append(bsonValue.asBoolean().getValue());
+                break;
+            case ARRAY:
+                parse(bsonValue.asArray(), node, output);
+                break;
+            case DOCUMENT:
+                parse(bsonValue.asDocument(), node, output);
+                break;
+            case DECIMAL128:
+                appendDecimal128(bsonValue.asDecimal128().getValue(), output);
+                break;
+            case BINARY:
+                output.appendBase64(bsonValue.asBinary().getData());
+                break;
+            case TIMESTAMP:
+                BsonTimestamp bsonTimestamp = bsonValue.asTimestamp();
+                appendTimestamp(bsonTimestamp.getTime(), bsonTimestamp.getInc(), output);
+                break;
+            case SYMBOL:
+                output.appendString(bsonValue.asSymbol().getSymbol());
+                break;
+            case JAVASCRIPT:
+                output.appendString(bsonValue.asJavaScript().getCode());
+                break;
+            case JAVASCRIPT_WITH_SCOPE:
+                output.appendString(bsonValue.asJavaScriptWithScope().getCode());
+                break;
+            case DB_POINTER:
+                BsonDbPointer bsonDbPointer = bsonValue.asDBPointer();
+                appendDbPointer(bsonDbPointer.getNamespace(), bsonDbPointer.getId(), output);
+                break;
+            case MIN_KEY:
+                output.append(MIN_KEY);
+                break;
+            case MAX_KEY:
+                output.append(MAX_KEY);
+                break;
+            case UNDEFINED:
+                output.append(NULL);
+                break;
+            default:
+                // NOP
+//                throw new RuntimeException("bson type not supported yet");
+        }
+    }
+
+    /**
+     * Appends the decimal as a plain JSON number, or as a quoted string when it is not finite ({@code NaN} and {@code Infinity} are not JSON numbers).
+     */
+    private void appendDecimal128(final Decimal128 decimal128, final JsonOutput output) {
+        String value = decimal128.toString();
+        if (!decimal128.isFinite()) {
+            output.appendString(value);
+            return;
+        }
+        BigDecimal bigDecimal = new BigDecimal(value);
+        if (decimal128.isNegative() && bigDecimal.signum() == 0) {
+            // BigDecimal has no negative zero
+            output.append('-');
+        }
+        output.append(bigDecimal.toPlainString());
+    }
+
+    /**
+     * Appends the timestamp as an object of its seconds since the epoch ({@code t}) and its ordinal ({@code i}), both unsigned.
+     */
+    private void appendTimestamp(final int time, final int inc, final JsonOutput output) {
+        output.append(JSON_OBJECT_START_TOKEN)
+                .appendString("t").append(COLON).append(Integer.toUnsignedLong(time)).append(COMMA)
+                .appendString("i").append(COLON).append(Integer.toUnsignedLong(inc))
+                .append(JSON_OBJECT_END_TOKEN);
+    }
+
+    /**
+     * Appends the deprecated DBPointer the same way as a DBRef.
+     */
+    private void appendDbPointer(final String namespace, final ObjectId id, final JsonOutput output) {
+        output.append(JSON_OBJECT_START_TOKEN)
+                .appendString("$ref").append(COLON).appendString(namespace).append(COMMA)
+                .appendString("$id").append(COLON).appendObjectId(id)
+                .append(JSON_OBJECT_END_TOKEN);
+    }
+
+    private void appendPattern(Pattern pattern, JsonOutput output) {
+        String patternValue = pattern.pattern();
+        int flags = pattern.flags();
+        String consolidate = flags > INVALID_PATTERN_FLAG ? patternValue + SLASH + PatternFlag.of(flags).getFlagAsString() : patternValue;
+
+        output.appendString(consolidate);
+    }
+
+    /**
+     * Resolves, once per class, how its values are rendered: the writers registered through the builder come first,
+     * in registration order, then the supported types in the order of the former instanceof chain.
+     */
+    private ValueRenderer resolve(final Class<?> type) {
+        for (Map.Entry<Class<?>, JsonValueWriter<?>> entry : writers.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type)) {
+                JsonValueWriter writer = entry.getValue();
+                return (value, node, output) -> writer.write(value, output);
+            }
+        }
+        if (BsonValue.class.isAssignableFrom(type)) {
+            return (value, node, output) -> checkBsonValue((BsonValue) value, node, output);
+        }
+        if (ObjectId.class.isAssignableFrom(type)) {
+            return (value, node, output) -> output.appendObjectId((ObjectId) value);
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return (value, node, output) -> parse((List) value, node, output);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return (value, node, output) -> parse((Map) value, node, output);
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return (value, node, output) -> output.appendDateTime(((Date) value).getTime());
+        }
+        if (String.class == type) {
+            return (value, node, output) -> output.appendString((String) value);
+        }
+        if (Pattern.class == type) {
+            return (value, node, output) -> appendPattern((Pattern) value, output);
+        }
+        if (Integer.class == type) {
+            return (value, node, output) -> output.append(((Integer) value).intValue());
+        }
+        if (Long.class == type) {
+            return (value, node, output) -> output.append(((Long) value).longValue());
+        }
+        if (Double.class == type) {
+            return (value, node, output) -> output.append(((Double) value).doubleValue());
+        }
+        if (Binary.class.isAssignableFrom(type)) {
+            return (value, node, output) -> output.appendBase64(((Binary) value).getData());
+        }
+        if (UUID.class == type) {
+            return (value, node, output) -> output.appendString(value.toString());
+        }
+        if (Decimal128.class == type) {
+            return (value, node, output) -> appendDecimal128((Decimal128) value, output);
+        }
+        if (Code.class.isAssignableFrom(type)) {
+            // CodeWithScope too, without its scope
+            return (value, node, output) -> output.appendString(((Code) value).getCode());
+        }
+        if (Symbol.class == type) {
+            return (value, node, output) -> output.appendString(((Symbol) value).getSymbol());
+        }
+        if (MinKey.class == type) {
+            return (value, node, output) -> output.append(MIN_KEY);
+        }
+        if (MaxKey.class == type) {
+            return (value, node, output) -> output.append(MAX_KEY);
+        }
+        if (Number.class.isAssignableFrom(type)) {
+            return (value, node, output) -> output.append(value);
+        }
+        if (Boolean.class == type) {
+            return (value, node, output) -> output.append(((Boolean) value).booleanValue());
+        }
+        // not supported yet, a writer can be registered for it
+        return (value, node, output) -> output.append(NULL);
+    }
+
+    /**
+     * Renders the documents of a batch into chunks, one chunk per call, into a buffer reused for every chunk.
+     */
+    private final class ChunkIterator implements Iterator<ByteBuffer> {
+
+        private final Iterator<? extends Map> documents;
+        private final BatchFormat format;
+        private final int chunkSize;
+        private final ChunkBuffer buffer;
+        private final JsonOutput output;
+        private ByteBuffer chunk;
+        private boolean started;
+        private boolean ended;
+        private boolean first = true;
+
+        private ChunkIterator(final Iterator<? extends Map> documents, final BatchFormat format, final int chunkSize) {
+            this.documents = documents;
+            this.format = format;
+            this.chunkSize = chunkSize;
+            this.buffer = new ChunkBuffer(chunkSize);
+            this.output = JsonOutput.of(buffer);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (chunk == null && !ended) {
+                chunk = fill();
+            }
+            return chunk != null;
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ByteBuffer next = chunk;
+            chunk = null;
+            return next;
+        }
+
+        private ByteBuffer fill() {
+            buffer.reset();
+            long mark = output.size();
+            if (!started) {
+                output.append(format.getStart());
+                started = true;
+            }
+            while (output.size() - mark < chunkSize && documents.hasNext()) {
+                if (!first) {
+                    output.append(format.getSeparator());
+                }
+                parse(documents.next(), root, output);
+                output.append(format.getTerminator());
+                first = false;
+            }
+            if (!documents.hasNext()) {
+                output.append(format.getEnd());
+                ended = true;
+            }
+            output.flush();
+            return buffer.size() > 0 ? buffer.toByteBuffer() : null;
+        }
+
+    }
+
+    /**
+     * Exposes the written bytes without copying them.
+     */
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+
+        private ChunkBuffer(final int size) {
+            super(size);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+    }
+
+    /**
+     * How the values of a class are rendered, resolved once per class.
+     */
+    private interface ValueRenderer {
+
+        void render(Object value, Projection.Node node, JsonOutput output);
+
+    }
+
+    /**
+     * A builder for {@link JsonParseEngine}.
+     */
+    public static final class Builder {
+
+        private CodecRegistry codecRegistry = CodecRegistries.fromProviders(new BsonValueCodecProvider());
+        private int parallelThreshold = Integer.MAX_VALUE;
+        private Executor executor = ForkJoinPool.commonPool();
+        private final Map<Class<?>, JsonValueWriter<?>> writers = new LinkedHashMap<>();
+        private Projection projection;
+        private boolean plainJsonPassThrough;
+        private JsonParseListener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the codec registry used to decode JSON strings into {@link BsonDocument} and {@link BsonArray}.
+         * Defaults to a registry with the {@link BsonValueCodecProvider}.
+         *
+         * @param codecRegistry the codec registry
+         * @return this
+         */
+        public Builder codecRegistry(final CodecRegistry codecRegistry) {
+            if (codecRegistry == null) {
+                throw new IllegalArgumentException("codecRegistry can not be null");
+            }
+            this.codecRegistry = codecRegistry;
+            return this;
+        }
+
+        /**
+         * Enables parallel conversion of large inputs: a top-level {@link List} or {@link BsonArray}, or a batch of documents,
+         * with at least this many elements is split into chunks that are rendered concurrently on the {@link #executor(Executor) executor}
+         * and then written in order. Nested arrays are always rendered sequentially.
+         * Defaults to {@link Integer#MAX_VALUE}, which keeps every conversion sequential.
+         *
+         * @param parallelThreshold the minimum number of elements for a parallel conversion
+         * @return this
+         */
+        public Builder parallelThreshold(final int parallelThreshold) {
+            if (parallelThreshold < 1) {
+                throw new IllegalArgumentException("parallelThreshold must be greater than zero");
+            }
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the executor that renders the chunks of a parallel conversion. Defaults to {@link ForkJoinPool#commonPool()}.
+         * A {@link ForkJoinPool} may also run the conversions themselves; any other executor must not, since the caller
+         * blocks waiting for the chunks.
+         *
+         * @param executor the executor
+         * @return this
+         * @see #parallelThreshold(int)
+         */
+        public Builder executor(final Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("executor can not be null");
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Registers how the values of a type, and of its subtypes, are written. Registered writers take precedence over
+         * the built-in handling of a type, and are matched in registration order, so register subtypes before their supertypes.
+         * Values of types that are neither registered nor supported are written as {@code null}.
+         *
+         * @param type   the type of the values
+         * @param writer the writer
+         * @param <T>    the type of the values
+         * @return this
+         */
+        public <T> Builder writer(final Class<T> type, final JsonValueWriter<? super T> writer) {
+            if (type == null || writer == null) {
+                throw new IllegalArgumentException("type and writer can not be null");
+            }
+            writers.put(type, writer);
+            return this;
+        }
+
+        /**
+         * Sets the projection selecting the fields that are rendered, by every conversion of the engine.
+         * Defaults to {@code null}, rendering every field.
+         *
+         * @param projection the projection, or {@code null}
+         * @return this
+         */
+        public Builder projection(final Projection projection) {
+            this.projection = projection;
+            return this;
+        }
+
+        /**
+         * Enables a pre-scan of JSON strings: those without any strict or shell mode representation of a BSON type are returned,
+         * or written, as they are instead of being decoded and rendered again, so their whitespace and number formatting are kept
+         * and they are not validated. Strings with such representations are converted as usual.
+         * The pre-scan is skipped when a {@link #projection(Projection) projection} is set. Defaults to {@code false}.
+         *
+         * @param plainJsonPassThrough whether plain JSON strings are passed through
+         * @return this
+         */
+        public Builder plainJsonPassThrough(final boolean plainJsonPassThrough) {
+            this.plainJsonPassThrough = plainJsonPassThrough;
+            return this;
+        }
+
+        /**
+         * Sets the listener notified of every conversion, {@link JsonParseMetrics} for instance.
+         * Defaults to {@code null}, leaving conversions uninstrumented.
+         *
+         * @param listener the listener, or {@code null}
+         * @return this
+         */
+        public Builder listener(final JsonParseListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Builds the engine.
+         *
+         * @return the engine
+         */
+        public JsonParseEngine build() {
+            return new JsonParseEngine(this);
+        }
+
+    }
+
+}
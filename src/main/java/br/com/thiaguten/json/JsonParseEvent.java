@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.RawBsonDocument;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * A conversion reported to a {@link JsonParseListener}.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public final class JsonParseEvent {
+
+    private final Object input;
+    private final long latency;
+    private final long outputSize;
+    private DocumentShape shape;
+
+    JsonParseEvent(final Object input, final long latency, final long outputSize) {
+        this.input = input;
+        this.latency = latency;
+        this.outputSize = outputSize;
+    }
+
+    /**
+     * Gets what was converted: a JSON {@link String}, a {@link java.util.Map}, a {@link java.util.List}, a {@link ByteBuffer}
+     * of binary BSON, or the {@link Iterator} of a batch.
+     *
+     * @return the input, may be {@code null}
+     */
+    public Object getInput() {
+        return input;
+    }
+
+    /**
+     * Gets how long the conversion took, the output written included.
+     *
+     * @return the latency, in nanoseconds
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the size of the input: the length of a JSON string or the number of bytes of binary BSON.
+     *
+     * @return the input size, {@code -1} if the input is neither
+     */
+    public long getInputSize() {
+        if (input instanceof String) {
+            return ((String) input).length();
+        }
+        if (input instanceof ByteBuffer) {
+            return ((ByteBuffer) input).remaining();
+        }
+        if (input instanceof RawBsonDocument) {
+            return ((RawBsonDocument) input).getByteBuffer().remaining();
+        }
+        return -1L;
+    }
+
+    /**
+     * Gets the size of the output: the number of characters written to a {@link StringBuilder}, or the number of bytes written
+     * to an {@link java.io.OutputStream}.
+     *
+     * @return the output size, {@code -1} if it is not known (written to another {@link Appendable})
+     */
+    public long getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * Gets the shape of the input. It is not tracked while converting: the input is walked again, without being rendered,
+     * the first time this method is called, so it should be called from {@link JsonParseListener#onConversion(JsonParseEvent)}.
+     *
+     * @return the shape, {@code null} for a batch
+     */
+    public DocumentShape getShape() {
+        if (shape == null && !(input instanceof Iterator)) {
+            shape = DocumentShape.of(input);
+        }
+        return shape;
+    }
+
+}
@@ -19,23 +19,20 @@
  */
 package br.com.thiaguten.json;
 
-import org.bson.*;
-import org.bson.codecs.BsonArrayCodec;
-import org.bson.codecs.BsonValueCodecProvider;
-import org.bson.codecs.DecoderContext;
-import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.json.JsonReader;
-import org.bson.types.ObjectId;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -63,6 +60,7 @@ import java.util.regex.Pattern;
  * </pre>
  * </li>
  * </ul>
+ * The static methods delegate to the default {@link JsonParseEngine}; build a dedicated engine for custom settings.
  *
  * @author Thiago Gutenberg Carvalho da Costa
  * @since 1.0.0
@@ -95,17 +93,72 @@ public final class JsonParseHelper {
      * @return 'standard' JSON format
      */
     public static String parse(final String json) {
-        if (json != null) {
-            String j = json.trim();
-            if (j.startsWith(JSON_OBJECT_START_TOKEN)) {
-                return parse(parseBsonDocument(json)); // type safe
-            } else if (j.startsWith(JSON_ARRAY_START_TOKEN)) {
-                return parse(parseBsonArray(json)); // type safe
-            } else {
-                return json;
-            }
-        }
-        return NULL;
+        return JsonParseEngine.getDefault().parse(json);
+    }
+
+    /**
+     * Parses strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json       the JSON to parse
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public static void parse(final String json, final Appendable appendable) {
+        JsonParseEngine.getDefault().parse(json, appendable);
+    }
+
+    /**
+     * Parses strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json         the JSON to parse
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public static void parse(final String json, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parse(json, outputStream);
+    }
+
+    /**
+     * Transcodes strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format
+     * in a single pass, driving a {@link JsonReader} token by token instead of building an intermediate {@link BsonDocument} tree.
+     * <p>
+     * The result is the same as {@link #parse(String)}, but memory use is bounded by the nesting depth of the input rather than by its size.
+     * The one difference is a document with duplicate keys: every key is written as it is read, so {@code {"a":1, "a":2}} is
+     * transcoded as it is, while {@link #parse(String)} keeps only the last value, giving {@code {"a":2}}.
+     *
+     * @param json the JSON to transcode
+     * @return 'standard' JSON format
+     */
+    public static String transcode(final String json) {
+        return JsonParseEngine.getDefault().transcode(json);
+    }
+
+    /**
+     * Transcodes strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format
+     * in a single pass, writing each token to the given {@link Appendable} as soon as it is read.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json       the JSON to transcode
+     * @param appendable where the 'standard' JSON format is written to
+     * @see #transcode(String)
+     */
+    public static void transcode(final String json, final Appendable appendable) {
+        JsonParseEngine.getDefault().transcode(json, appendable);
+    }
+
+    /**
+     * Transcodes strict mode representations of BSON types and MongoDB shell BSON document query results into 'standard' JSON format
+     * in a single pass, writing each token UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     * Nothing is written if the JSON is {@code null}.
+     *
+     * @param json         the JSON to transcode
+     * @param outputStream where the 'standard' JSON format is written to
+     * @see #transcode(String)
+     */
+    public static void transcode(final String json, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().transcode(json, outputStream);
     }
 
     /**
@@ -115,152 +168,209 @@ public final class JsonParseHelper {
      * @return 'standard' JSON format
      */
     public static String parse(final List list) {
-        StringBuilder builder = new StringBuilder(JSON_ARRAY_START_TOKEN);
-        if (list != null && !list.isEmpty()) {
-            parse(list, builder);
-        }
-        return builder.append(JSON_ARRAY_END_TOKEN).toString();
+        return JsonParseEngine.getDefault().parse(list);
+    }
+
+    /**
+     * Parses {@link BsonArray} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param list       {@link BsonArray} or {@link List}
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public static void parse(final List list, final Appendable appendable) {
+        JsonParseEngine.getDefault().parse(list, appendable);
+    }
+
+    /**
+     * Parses {@link BsonArray} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param list         {@link BsonArray} or {@link List}
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public static void parse(final List list, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parse(list, outputStream);
     }
 
     /**
      * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format without strict BSON representations or BSON MongoDB types.
      *
-     * @param map {@link BsonDocument} or {@link Document}
+     * @param map {@link BsonDocument}, {@link RawBsonDocument} or {@link Document}
      * @return 'standard' JSON format
      */
     public static String parse(final Map map) {
-        StringBuilder builder = new StringBuilder(JSON_OBJECT_START_TOKEN);
-        if (map != null && !map.isEmpty()) {
-            parse(map, builder);
-        }
-        return builder.append(JSON_OBJECT_END_TOKEN).toString();
+        return JsonParseEngine.getDefault().parse(map);
     }
 
-    // PRIVATE METHODS
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param map        {@link BsonDocument} or {@link Document}
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public static void parse(final Map map, final Appendable appendable) {
+        JsonParseEngine.getDefault().parse(map, appendable);
+    }
 
-    private static BsonArray parseBsonArray(final String json) {
-        return new BsonArrayCodec(CodecRegistries.fromProviders(new BsonValueCodecProvider())).decode(new JsonReader(json), DecoderContext.builder().build());
+    /**
+     * Parses {@link BsonDocument} or {@link Document} into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param map          {@link BsonDocument} or {@link Document}
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public static void parse(final Map map, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parse(map, outputStream);
     }
 
-    private static BsonDocument parseBsonDocument(final String json) {
-        return BsonDocument.parse(json);
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * walking the bytes with a {@link BsonBinaryReader} instead of decoding them into a {@link BsonDocument} first.
+     *
+     * @param bson the binary BSON document
+     * @return 'standard' JSON format
+     */
+    public static String parse(final byte[] bson) {
+        return JsonParseEngine.getDefault().parse(bson);
     }
 
-    private static void parse(final List list, final StringBuilder builder) {
-        AtomicInteger count = new AtomicInteger(1);
-        for (Object value : list) {
-            checkInstance(value, builder);
-            if (count.getAndIncrement() < list.size()) {
-                builder.append(COMMA);
-            }
-        }
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param bson       the binary BSON document
+     * @param appendable where the 'standard' JSON format is written to
+     * @see #parse(byte[])
+     */
+    public static void parse(final byte[] bson, final Appendable appendable) {
+        JsonParseEngine.getDefault().parse(bson, appendable);
     }
 
-    private static void parse(final Map map, final StringBuilder builder) {
-        AtomicInteger count = new AtomicInteger(1);
-        Set<Map.Entry<String, Object>> entries = map.entrySet();
-        for (Map.Entry<String, Object> entry : entries) {
-            builder.append(DOUBLE_QUOTES).append(entry.getKey()).append(DOUBLE_QUOTES).append(COLON);
-            checkInstance(entry.getValue(), builder);
-            if (count.getAndIncrement() < entries.size()) {
-                builder.append(COMMA);
-            }
-        }
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param bson         the binary BSON document
+     * @param outputStream where the 'standard' JSON format is written to
+     * @see #parse(byte[])
+     */
+    public static void parse(final byte[] bson, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parse(bson, outputStream);
     }
 
-    private static void checkInstance(Object value, StringBuilder builder) {
-        if (value instanceof BsonValue) {
-            BsonValue bsonValue = (BsonValue) value;
-            BsonType bsonType = bsonValue.getBsonType();
-            switch (bsonType) {
-                case REGULAR_EXPRESSION:
-                    BsonRegularExpression bsonRegularExpression = bsonValue.asRegularExpression();
-                    String pattern = BACKSLASH + bsonRegularExpression.getPattern();
-                    String options = bsonRegularExpression.getOptions();
-                    String consolidate = !options.trim().isEmpty() ? pattern + SLASH + options : pattern;
-                    builder.append(DOUBLE_QUOTES).append(consolidate).append(DOUBLE_QUOTES);
-                    break;
-                case NULL:
-                    builder.append(NULL);
-                    break;
-                case OBJECT_ID:
-                    builder.append(DOUBLE_QUOTES).append(bsonValue.asObjectId().getValue().toHexString()).append(DOUBLE_QUOTES);
-                    break;
-                case DATE_TIME:
-                    Instant instant = Instant.ofEpochMilli(bsonValue.asDateTime().getValue());
-                    LocalDateTime localDateTime = LocalDateTime.ofInstant(instant, UTC_DATE_TIME_ZONE);
-                    builder.append(DOUBLE_QUOTES).append(localDateTime).append(DOUBLE_QUOTES);
-                    break;
-                case STRING:
-                    builder.append(DOUBLE_QUOTES).append(bsonValue.asString().getValue()).append(DOUBLE_QUOTES);
-                    break;
-                case INT32:
-                    builder.append(bsonValue.asInt32().getValue());
-                    break;
-                case INT64:
-                    builder.append(bsonValue.asInt64().getValue());
-                    break;
-                case DOUBLE:
-                    builder.append(bsonValue.asDouble().getValue());
-                    break;
-                case BOOLEAN:
-                    builder.append(bsonValue.asBoolean().getValue());
-                    break;
-                case ARRAY:
-                    builder.append(parse(bsonValue.asArray()));
-                    break;
-                case DOCUMENT:
-                    builder.append(parse(bsonValue.asDocument()));
-                    break;
-                default:
-                    // NOP
-//                    throw new RuntimeException("bson type not supported yet");
-            }
-        } else {
-            if (value instanceof ObjectId) {
-                builder.append(DOUBLE_QUOTES).append(((ObjectId) value).toHexString()).append(DOUBLE_QUOTES);
-                return;
-            }
-            if (value instanceof List) {
-                builder.append(parse((List) value));
-                return;
-            }
-            if (value instanceof Map) {
-                builder.append(parse((Map) value));
-                return;
-            }
-            if (value instanceof Date) {
-                Date date = (Date) value;
-                builder.append(DOUBLE_QUOTES).append(LocalDateTime.ofInstant(date.toInstant(), UTC_DATE_TIME_ZONE)).append(DOUBLE_QUOTES);
-                return;
-            }
-            if (value instanceof String) {
-                builder.append(DOUBLE_QUOTES).append(value).append(DOUBLE_QUOTES);
-                return;
-            }
-            if (value instanceof Pattern) {
-                Pattern pattern = ((Pattern) value);
-                String patternValue = BACKSLASH + pattern.pattern();
-                int flags = pattern.flags();
-                String consolidate = flags > INVALID_PATTERN_FLAG ? patternValue + SLASH + PatternFlag.of(flags).getFlagAsString() : patternValue;
-
-                builder.append(DOUBLE_QUOTES).append(consolidate).append(DOUBLE_QUOTES);
-                return;
-            }
-            if (value instanceof Number) {
-                builder.append(value);
-                return;
-            }
-            if (value instanceof Boolean) {
-                builder.append(value);
-                return;
-            }
-            if (value == null) {
-                builder.append(NULL);
-            }
-            // NOP
-//            throw new RuntimeException("object type not supported yet");
-        }
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * walking the bytes with a {@link BsonBinaryReader} instead of decoding them into a {@link BsonDocument} first.
+     * The document is read from the buffer's current position; the position, limit and byte order of the buffer are left untouched.
+     *
+     * @param bson the binary BSON document
+     * @return 'standard' JSON format
+     */
+    public static String parse(final ByteBuffer bson) {
+        return JsonParseEngine.getDefault().parse(bson);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param bson       the binary BSON document
+     * @param appendable where the 'standard' JSON format is written to
+     * @see #parse(ByteBuffer)
+     */
+    public static void parse(final ByteBuffer bson, final Appendable appendable) {
+        JsonParseEngine.getDefault().parse(bson, appendable);
+    }
+
+    /**
+     * Parses a binary BSON document into 'standard' JSON format without strict BSON representations or BSON MongoDB types,
+     * writing the result UTF-8 encoded to the given {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param bson         the binary BSON document
+     * @param outputStream where the 'standard' JSON format is written to
+     * @see #parse(ByteBuffer)
+     */
+    public static void parse(final ByteBuffer bson, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parse(bson, outputStream);
+    }
+
+    /**
+     * Parses a batch of {@link BsonDocument}s or {@link Document}s, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, all documents rendered into the same buffer.
+     *
+     * @param documents the documents
+     * @param format    how the documents are laid out
+     * @return 'standard' JSON format
+     */
+    public static String parseBatch(final Iterable<? extends Map> documents, final BatchFormat format) {
+        return JsonParseEngine.getDefault().parseBatch(documents, format);
+    }
+
+    /**
+     * Parses a batch of {@link BsonDocument}s or {@link Document}s into 'standard' JSON format laid out as the given {@link BatchFormat},
+     * writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance) instead of returning it.
+     *
+     * @param documents  the documents
+     * @param format     how the documents are laid out
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public static void parseBatch(final Iterable<? extends Map> documents, final BatchFormat format, final Appendable appendable) {
+        JsonParseEngine.getDefault().parseBatch(documents, format, appendable);
+    }
+
+    /**
+     * Parses a batch of {@link BsonDocument}s or {@link Document}s into 'standard' JSON format laid out as the given {@link BatchFormat},
+     * writing the result UTF-8 encoded to the given {@link OutputStream} through a single buffer reused for every document.
+     * The stream is flushed but not closed.
+     *
+     * @param documents    the documents
+     * @param format       how the documents are laid out
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public static void parseBatch(final Iterable<? extends Map> documents, final BatchFormat format, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parseBatch(documents, format, outputStream);
+    }
+
+    /**
+     * Parses the remaining {@link BsonDocument}s or {@link Document}s of an iterator, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, writing the result to the given {@link Appendable} (a {@link java.io.Writer}, for instance).
+     *
+     * @param documents  the documents
+     * @param format     how the documents are laid out
+     * @param appendable where the 'standard' JSON format is written to
+     */
+    public static void parseBatch(final Iterator<? extends Map> documents, final BatchFormat format, final Appendable appendable) {
+        JsonParseEngine.getDefault().parseBatch(documents, format, appendable);
+    }
+
+    /**
+     * Parses the remaining {@link BsonDocument}s or {@link Document}s of an iterator, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, writing the result UTF-8 encoded to the given {@link OutputStream}
+     * through a single buffer reused for every document. The stream is flushed but not closed.
+     *
+     * @param documents    the documents
+     * @param format       how the documents are laid out
+     * @param outputStream where the 'standard' JSON format is written to
+     */
+    public static void parseBatch(final Iterator<? extends Map> documents, final BatchFormat format, final OutputStream outputStream) {
+        JsonParseEngine.getDefault().parseBatch(documents, format, outputStream);
+    }
+
+    /**
+     * Parses the remaining {@link BsonDocument}s or {@link Document}s of an iterator, a result cursor for instance, into 'standard' JSON format
+     * laid out as the given {@link BatchFormat}, UTF-8 encoded into chunks of about the given size that are only rendered when asked for.
+     * A chunk is only valid until the next one is asked for.
+     *
+     * @param documents the documents
+     * @param format    how the documents are laid out
+     * @param chunkSize the minimum size of a chunk, in bytes
+     * @return the chunks, in order
+     * @see JsonParseEngine#parseChunked(Iterator, BatchFormat, int)
+     */
+    public static Iterator<ByteBuffer> parseChunked(final Iterator<? extends Map> documents, final BatchFormat format, final int chunkSize) {
+        return JsonParseEngine.getDefault().parseChunked(documents, format, chunkSize);
     }
 
     enum PatternFlag {
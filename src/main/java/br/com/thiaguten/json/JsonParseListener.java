@@ -0,0 +1,43 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+/**
+ * Notified of every conversion of a {@link JsonParseEngine}, registered through {@link JsonParseEngine.Builder#listener(JsonParseListener)}.
+ * Engines without a listener are not instrumented at all.
+ * <p>
+ * Listeners are called once per public {@code parse} or {@code transcode} call, on the thread of the caller, once the output is written,
+ * and are shared by every conversion of an engine, so they must be thread-safe and should return quickly.
+ * JSON strings written or returned as they are, without being converted, are reported too.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ * @see JsonParseMetrics
+ */
+public interface JsonParseListener {
+
+    /**
+     * Called after a conversion.
+     *
+     * @param event the conversion
+     */
+    void onConversion(JsonParseEvent event);
+
+}
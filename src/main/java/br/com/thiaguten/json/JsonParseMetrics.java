@@ -0,0 +1,238 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link JsonParseListener} aggregating the conversions of an engine into histograms:
+ * <pre>
+ * {@code JsonParseMetrics metrics = new JsonParseMetrics(true);
+ * JsonParseEngine engine = JsonParseEngine.builder().listener(metrics).build();
+ * long p99 = metrics.getLatency().getPercentile(0.99); }
+ * </pre>
+ * Recording is lock-free: a value is counted in one of 64 power-of-two buckets, so percentiles are approximated
+ * by the upper bound of their bucket, at most twice the actual value.
+ * <p>
+ * The {@link DocumentShape shape} of the inputs is only recorded when asked to, because it walks every input again.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public final class JsonParseMetrics implements JsonParseListener {
+
+    private static final BsonType[] BSON_TYPES = BsonType.values();
+
+    private final boolean shapes;
+    private final Histogram latency = new Histogram();
+    private final Histogram inputSize = new Histogram();
+    private final Histogram outputSize = new Histogram();
+    private final Histogram maxDepth = new Histogram();
+    private final Histogram elementCount = new Histogram();
+    private final AtomicLongArray counts = new AtomicLongArray(BSON_TYPES.length);
+
+    /**
+     * Creates metrics of the latency and the input and output sizes only.
+     */
+    public JsonParseMetrics() {
+        this(false);
+    }
+
+    /**
+     * Creates metrics of the latency and the input and output sizes, and of the shape of the inputs if asked to.
+     *
+     * @param shapes whether the shape of the inputs is recorded
+     */
+    public JsonParseMetrics(final boolean shapes) {
+        this.shapes = shapes;
+    }
+
+    @Override
+    public void onConversion(final JsonParseEvent event) {
+        latency.record(event.getLatency());
+        inputSize.record(event.getInputSize());
+        outputSize.record(event.getOutputSize());
+        if (shapes) {
+            DocumentShape shape = event.getShape();
+            if (shape != null) {
+                maxDepth.record(shape.getMaxDepth());
+                elementCount.record(shape.getElementCount());
+                for (BsonType bsonType : BSON_TYPES) {
+                    long count = shape.getCount(bsonType);
+                    if (count > 0) {
+                        counts.addAndGet(bsonType.ordinal(), count);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the latency of the conversions, in nanoseconds.
+     *
+     * @return the histogram
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the size of the inputs that have one, see {@link JsonParseEvent#getInputSize()}.
+     *
+     * @return the histogram
+     */
+    public Histogram getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Gets the size of the outputs that have a known one, see {@link JsonParseEvent#getOutputSize()}.
+     *
+     * @return the histogram
+     */
+    public Histogram getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * Gets the maximum depth of the inputs, empty unless shapes are recorded.
+     *
+     * @return the histogram
+     */
+    public Histogram getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets the number of values of the inputs, empty unless shapes are recorded.
+     *
+     * @return the histogram
+     */
+    public Histogram getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Gets the number of values of a type across every input, {@code 0} unless shapes are recorded.
+     *
+     * @param bsonType the type
+     * @return the count
+     */
+    public long getCount(final BsonType bsonType) {
+        return counts.get(bsonType.ordinal());
+    }
+
+    /**
+     * Lock-free histogram of non-negative values, counted in power-of-two buckets.
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram() {
+        }
+
+        /**
+         * Records a value, ignored if negative.
+         */
+        void record(final long value) {
+            if (value < 0) {
+                return;
+            }
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        /**
+         * Gets the number of recorded values.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Gets the largest recorded value.
+         *
+         * @return the maximum, {@code 0} if nothing was recorded
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Gets the mean of the recorded values.
+         *
+         * @return the mean, {@code 0} if nothing was recorded
+         */
+        public double getMean() {
+            long n = count.sum();
+            return n > 0 ? (double) sum.sum() / n : 0.0;
+        }
+
+        /**
+         * Gets an upper bound of the given percentile of the recorded values, at most twice the actual percentile.
+         *
+         * @param percentile the percentile, between {@code 0} and {@code 1}
+         * @return the upper bound, {@code 0} if nothing was recorded
+         */
+        public long getPercentile(final double percentile) {
+            if (percentile < 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile must be between 0 and 1");
+            }
+            long total = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && seen > 0) {
+                    // bucket i holds the values of i significant bits
+                    return Math.min((1L << i) - 1, max.get());
+                }
+            }
+            return 0L;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{count=" + getCount() + ", mean=" + getMean() + ", p50=" + getPercentile(0.5)
+                    + ", p99=" + getPercentile(0.99) + ", max=" + getMax() + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+/**
+ * Where a {@link JsonValueWriter} writes its JSON value to.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public interface JsonValueOutput {
+
+    /**
+     * Writes a quoted and escaped JSON string.
+     *
+     * @param value the string
+     * @return this
+     */
+    JsonValueOutput writeString(String value);
+
+    /**
+     * Writes a JSON number.
+     *
+     * @param value the number
+     * @return this
+     */
+    JsonValueOutput writeNumber(long value);
+
+    /**
+     * Writes a JSON number.
+     *
+     * @param value the number
+     * @return this
+     */
+    JsonValueOutput writeNumber(double value);
+
+    /**
+     * Writes {@code true} or {@code false}.
+     *
+     * @param value the boolean
+     * @return this
+     */
+    JsonValueOutput writeBoolean(boolean value);
+
+    /**
+     * Writes {@code null}.
+     *
+     * @return this
+     */
+    JsonValueOutput writeNull();
+
+    /**
+     * Writes the given text as it is, so it must already be valid JSON.
+     *
+     * @param json the JSON
+     * @return this
+     */
+    JsonValueOutput writeRaw(String json);
+
+}
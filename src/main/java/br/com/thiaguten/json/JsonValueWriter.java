@@ -0,0 +1,43 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+/**
+ * Writes values of a given type as 'standard' JSON, registered through {@link JsonParseEngine.Builder#writer(Class, JsonValueWriter)}
+ * for types that are not supported out of the box ({@link java.time.Instant} or {@link java.net.URI}, for instance,
+ * which are otherwise written as {@code null}) or to change how a supported type is written.
+ * <p>
+ * Writers are shared by every conversion of an engine, so they must be thread-safe.
+ *
+ * @param <T> the type of the values
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public interface JsonValueWriter<T> {
+
+    /**
+     * Writes the value as exactly one JSON value.
+     *
+     * @param value  the value, never {@code null}
+     * @param output where the JSON value is written to
+     */
+    void write(T value, JsonValueOutput output);
+
+}
@@ -0,0 +1,215 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled set of dotted paths selecting the fields rendered by a {@link JsonParseEngine}, the same as a MongoDB projection:
+ * either only the listed paths are rendered, or everything but the listed paths is.
+ * <pre>
+ * {@code JsonParseEngine engine = JsonParseEngine.builder().projection(Projection.include("name", "items.*.price")).build(); }
+ * </pre>
+ * A path segment is a field name, an array index or {@code *}, which matches any field name or array index.
+ * Arrays are a level of the path ({@code items.0.price}), except the top-level arrays and batches, whose elements are each projected from the root.
+ * <p>
+ * Subtrees that are not rendered are skipped while walking a document, and skipped by the reader, without being decoded,
+ * while transcoding JSON strings and binary BSON. Including a path under a value that is neither a document nor an array renders nothing.
+ *
+ * @author Thiago Gutenberg Carvalho da Costa
+ * @since 1.0.0
+ */
+public final class Projection {
+
+    private static final String WILDCARD = "*";
+
+    private final boolean include;
+    private final List<String> paths;
+    private final Node root;
+
+    private Projection(final boolean include, final String... paths) {
+        if (paths == null || paths.length == 0) {
+            throw new IllegalArgumentException("at least one path is required");
+        }
+        this.include = include;
+        this.paths = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(paths)));
+        this.root = new Node(include);
+        for (String path : paths) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("path can not be null or empty");
+            }
+            Node node = root;
+            for (String segment : path.split("\\.", -1)) {
+                if (segment.isEmpty()) {
+                    throw new IllegalArgumentException("path can not have empty segments: " + path);
+                }
+                node = node.add(segment);
+            }
+            node.terminal = true;
+        }
+        root.normalize();
+    }
+
+    /**
+     * Creates a projection rendering only the given paths.
+     *
+     * @param paths the dotted paths to render
+     * @return the projection
+     * @throws IllegalArgumentException if there is no path or a path is empty
+     */
+    public static Projection include(final String... paths) {
+        return new Projection(true, paths);
+    }
+
+    /**
+     * Creates a projection rendering everything but the given paths.
+     *
+     * @param paths the dotted paths to skip
+     * @return the projection
+     * @throws IllegalArgumentException if there is no path or a path is empty
+     */
+    public static Projection exclude(final String... paths) {
+        return new Projection(false, paths);
+    }
+
+    /**
+     * Gets whether the paths are the only ones rendered, rather than the ones skipped.
+     *
+     * @return {@code true} if the paths are included, {@code false} if they are excluded
+     */
+    public boolean isInclude() {
+        return include;
+    }
+
+    /**
+     * Gets the paths of this projection.
+     *
+     * @return the unmodifiable paths, in the given order
+     */
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return (include ? "include" : "exclude") + paths;
+    }
+
+    /**
+     * A level of the compiled paths. The children matched by a wildcard are merged into the named children once,
+     * when the projection is compiled, so that a field is selected with a single lookup.
+     */
+    static final class Node {
+
+        /**
+         * Selected for a subtree that is not rendered at all.
+         */
+        static final Node SKIP = new Node(false);
+
+        private final boolean include;
+        private final Map<String, Node> children = new HashMap<>();
+        private Node wildcard;
+        private boolean terminal;
+
+        private Node(final boolean include) {
+            this.include = include;
+        }
+
+        /**
+         * Selects the node of a field of the document under this node.
+         *
+         * @return {@code null} if the field is entirely rendered, {@link #SKIP} if it is not rendered at all,
+         * otherwise the node its own fields are selected with
+         */
+        Node select(final String name) {
+            Node child = children.get(name);
+            if (child == null) {
+                child = wildcard;
+            }
+            if (child == null) {
+                return include ? SKIP : null;
+            }
+            if (child.terminal) {
+                return include ? null : SKIP;
+            }
+            return child;
+        }
+
+        /**
+         * Selects the node of an element of the array under this node.
+         *
+         * @see #select(String)
+         */
+        Node select(final int index) {
+            return children.isEmpty() && wildcard != null ? select(WILDCARD) : select(Integer.toString(index));
+        }
+
+        /**
+         * Whether a value that is neither a document nor an array is rendered when selected with this node,
+         * because nothing below it can be included.
+         */
+        boolean rendersScalar() {
+            return !include;
+        }
+
+        private Node add(final String segment) {
+            if (WILDCARD.equals(segment)) {
+                if (wildcard == null) {
+                    wildcard = new Node(include);
+                }
+                return wildcard;
+            }
+            return children.computeIfAbsent(segment, s -> new Node(include));
+        }
+
+        private void normalize() {
+            if (wildcard != null) {
+                for (Node child : children.values()) {
+                    child.merge(wildcard);
+                }
+                wildcard.normalize();
+            }
+            for (Node child : children.values()) {
+                child.normalize();
+            }
+        }
+
+        private void merge(final Node node) {
+            terminal |= node.terminal;
+            for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+                add(entry.getKey()).merge(entry.getValue());
+            }
+            if (node.wildcard != null) {
+                add(WILDCARD).merge(node.wildcard);
+            }
+        }
+
+    }
+
+}
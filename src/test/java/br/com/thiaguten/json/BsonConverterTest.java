@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonMaxKey;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class BsonConverterTest {
+
+    private final BsonConverter converter = BsonConverter.builder()
+            .hint("_id", BsonType.OBJECT_ID)
+            .hint("date", BsonType.DATE_TIME)
+            .hint("pattern", BsonType.REGULAR_EXPRESSION)
+            .hint("plain", BsonType.REGULAR_EXPRESSION)
+            .hint("long", BsonType.INT64)
+            .hint("decimal", BsonType.DECIMAL128)
+            .hint("binary", BsonType.BINARY)
+            .hint("timestamp", BsonType.TIMESTAMP)
+            .hint("max", BsonType.MAX_KEY)
+            .hint("items.*.date", BsonType.DATE_TIME)
+            .hint("items.0.id", BsonType.OBJECT_ID)
+            .build();
+
+    @Test
+    public void roundTripTest() {
+        BsonDocument document = new BsonDocument("_id", new BsonObjectId(new ObjectId("5662e5798172910f5a925a43")))
+                .append("date", new BsonDateTime(1449321849768L))
+                .append("pattern", new BsonRegularExpression("\\d/x", "i"))
+                .append("plain", new BsonRegularExpression("a/b"))
+                .append("long", new BsonInt64(1))
+                .append("decimal", new BsonDecimal128(Decimal128.parse("1.5")))
+                .append("binary", new BsonBinary(new byte[]{1, 2, 3}))
+                .append("timestamp", new BsonTimestamp(5, 6))
+                .append("max", new BsonMaxKey())
+                .append("nothing", new BsonNull())
+                .append("name", new BsonString("value"))
+                .append("items", new BsonArray(Arrays.asList(
+                        new BsonDocument("date", new BsonDateTime(0)).append("id", new BsonObjectId(new ObjectId("5662e5798172910f5a925a43"))),
+                        new BsonDocument("date", new BsonDateTime(86400000L)).append("id", new BsonString("5662e5798172910f5a925a43")),
+                        new BsonDouble(2.5))));
+        String json = JsonParseHelper.parse(document);
+
+        assertEquals(document, converter.toBsonDocument(json));
+        assertEquals(document, converter.toRawBsonDocument(json));
+        assertEquals(json, JsonParseHelper.parse(converter.toRawBsonDocument(json)));
+    }
+
+    @Test
+    public void unsignedTimestampTest() {
+        BsonDocument document = new BsonDocument("timestamp", new BsonTimestamp(-1, -1));
+        String json = JsonParseHelper.parse(document);
+
+        assertEquals("{\"timestamp\":{\"t\":4294967295, \"i\":4294967295}}", json);
+        assertEquals(document, converter.toBsonDocument(json));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void timestampOutOfRangeTest() {
+        converter.toBsonDocument("{\"timestamp\":{\"t\":4294967296, \"i\":0}}");
+    }
+
+    @Test
+    public void documentTest() {
+        Document document = converter.toDocument("{\"_id\":\"5662e5798172910f5a925a43\", \"date\":\"2015-12-05T13:26:23.184+02:00\", \"long\":\"7\", \"other\":{\"$numberLong\":\"8\"}}");
+
+        assertEquals(new ObjectId("5662e5798172910f5a925a43"), document.get("_id"));
+        assertEquals(new Date(1449314783184L), document.get("date"));
+        assertEquals(7L, document.get("long"));
+        assertEquals(8L, document.get("other"));
+        assertEquals(new BsonDocument("date", new BsonNull()).append("x", new BsonInt32(1)), converter.toBsonDocument("{\"date\":null, \"x\":1}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidValueTest() {
+        converter.toBsonDocument("{\"_id\":true}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notDocumentTest() {
+        converter.toBsonDocument("[1]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedTypeTest() {
+        BsonConverter.builder().hint("a", BsonType.DOCUMENT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptySegmentTest() {
+        BsonConverter.builder().hint("a..b", BsonType.STRING);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BufferPoolTest {
+
+    @Test
+    public void reuseTest() {
+        BufferPool pool = new BufferPool();
+        StringBuilder builder = pool.acquire(0);
+        assertTrue(builder.capacity() >= BufferPool.MIN_CAPACITY);
+
+        builder.append("value");
+        assertEquals("value", pool.release(builder));
+        StringBuilder reused = pool.acquire(0);
+        assertSame(builder, reused);
+        assertEquals(0, reused.length());
+        assertNotSame(builder, pool.acquire(0));
+        assertTrue(pool.acquire(10000).capacity() >= 10000);
+    }
+
+    @Test
+    public void presizeTest() {
+        BufferPool pool = new BufferPool();
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            output.append('x');
+        }
+        for (int i = 0; i < 50; i++) {
+            StringBuilder builder = pool.acquire(0);
+            builder.append(output);
+            pool.release(builder);
+        }
+
+        assertTrue(pool.getAverage() > 1900 && pool.getAverage() <= 2000);
+        assertTrue(pool.acquire(0).capacity() >= 2000);
+    }
+
+    @Test
+    public void outlierTest() {
+        BufferPool pool = new BufferPool();
+        StringBuilder outlier = pool.acquire(0);
+        for (int i = 0; i < 100 * BufferPool.MIN_CAPACITY; i++) {
+            outlier.append('x');
+        }
+        pool.release(outlier);
+
+        assertNotSame(outlier, pool.acquire(0));
+    }
+
+}
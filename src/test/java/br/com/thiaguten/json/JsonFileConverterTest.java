@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class JsonFileConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void convertTest() throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lines.add("{ \"_id\" : { \"$oid\" : \"5662e5798172910f5a925a43\" }, \"i\" : { \"$numberLong\" : \"" + i + "\" }, \"name\" : \"café\" }");
+            expected.append("{\"_id\":\"5662e5798172910f5a925a43\", \"i\":").append(i).append(", \"name\":\"café\"}\n");
+        }
+        lines.add("");
+        lines.add("  ");
+        lines.set(10, lines.get(10) + "\r");
+        Path input = folder.newFile("export.json").toPath();
+        Path output = folder.getRoot().toPath().resolve("standard.json");
+        Files.write(input, lines, StandardCharsets.UTF_8);
+
+        // segments much smaller than a line still end on line boundaries
+        JsonFileConverter.Statistics statistics = new JsonFileConverter(JsonParseEngine.getDefault(), 100).convert(input, output);
+
+        assertEquals(expected.toString(), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        assertEquals(1000, statistics.getLines());
+        assertEquals(Files.size(input), statistics.getBytesRead());
+        assertEquals(Files.size(output), statistics.getBytesWritten());
+        assertTrue(statistics.getThroughput() > 0);
+
+        new JsonFileConverter(JsonParseEngine.getDefault(), 1 << 20).convert(input, output);
+        assertEquals(expected.toString(), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void convertDirectoryTest() throws IOException {
+        Path inputDirectory = folder.newFolder("in").toPath();
+        Path outputDirectory = folder.getRoot().toPath().resolve("out");
+        Files.write(inputDirectory.resolve("a.json"), Arrays.asList("{\"a\": {\"$numberLong\": \"1\"}}"), StandardCharsets.UTF_8);
+        Files.write(inputDirectory.resolve("b.json"), Arrays.asList("{\"b\": 2}", "{\"b\": 3}"), StandardCharsets.UTF_8);
+        Files.write(inputDirectory.resolve("empty.json"), new byte[0]);
+
+        JsonFileConverter.Statistics statistics = new JsonFileConverter().convertDirectory(inputDirectory, outputDirectory);
+
+        assertEquals(3, statistics.getLines());
+        assertEquals("{\"a\":1}\n", new String(Files.readAllBytes(outputDirectory.resolve("a.json")), StandardCharsets.UTF_8));
+        assertEquals("{\"b\":2}\n{\"b\":3}\n", new String(Files.readAllBytes(outputDirectory.resolve("b.json")), StandardCharsets.UTF_8));
+        assertEquals(0, Files.size(outputDirectory.resolve("empty.json")));
+    }
+
+    @Test
+    public void convertInsidePoolTest() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add("{\"i\": {\"$numberLong\": \"" + i + "\"}}");
+        }
+        Path input = folder.newFile("export.json").toPath();
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            JsonFileConverter converter = new JsonFileConverter(JsonParseEngine.builder().executor(pool).build(), 100);
+            Future<JsonFileConverter.Statistics> first = pool.submit(() -> converter.convert(input, folder.getRoot().toPath().resolve("first.json")));
+            Future<JsonFileConverter.Statistics> second = pool.submit(() -> converter.convert(input, folder.getRoot().toPath().resolve("second.json")));
+            assertEquals(1000, first.get(10, TimeUnit.SECONDS).getLines());
+            assertEquals(1000, second.get(10, TimeUnit.SECONDS).getLines());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentSizeInvalidTest() {
+        new JsonFileConverter(JsonParseEngine.getDefault(), 0);
+    }
+
+}
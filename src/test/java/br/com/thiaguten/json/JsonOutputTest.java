@@ -0,0 +1,202 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JsonOutputTest {
+
+    private static final String ESCAPED = "\"quote\\\" backslash\\\\ slash/ \\b\\f\\n\\r\\t \\u0000\\u001f\"";
+    private static final String UNESCAPED = "quote\" backslash\\ slash/ \b\f\n\r\t \u0000\u001f";
+    private static final String MULTIBYTE = "ação 漢字 😀 €";
+
+    @Test
+    public void appendStringStringBuilderTest() {
+        StringBuilder builder = new StringBuilder();
+        JsonOutput.of(builder).appendString(UNESCAPED).append(',').appendString(MULTIBYTE).appendString("");
+        assertEquals(ESCAPED + ",\"" + MULTIBYTE + "\"\"\"", builder.toString());
+    }
+
+    @Test
+    public void appendStringAppendableTest() {
+        StringWriter writer = new StringWriter();
+        JsonOutput.of(writer).appendString(UNESCAPED).append(',').appendString(MULTIBYTE);
+        assertEquals(ESCAPED + ",\"" + MULTIBYTE + "\"", writer.toString());
+    }
+
+    @Test
+    public void appendStringUtf8Test() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonOutput output = JsonOutput.of(out);
+        output.appendString(UNESCAPED).append(',').appendString(MULTIBYTE).append(',').append(MULTIBYTE);
+        assertEquals(0, out.size());
+        output.flush();
+        assertEquals(ESCAPED + ",\"" + MULTIBYTE + "\"," + MULTIBYTE, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void utf8UnpairedSurrogateTest() {
+        String unpaired = "a\ud83d b\ude00";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonOutput output = JsonOutput.of(out).append(unpaired);
+        output.flush();
+        assertArrayEquals(unpaired.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void utf8BufferBoundariesTest() {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                builder.append((char) (' ' + random.nextInt(95)));
+            } else if (kind < 7) {
+                builder.append((char) random.nextInt(0x20));
+            } else if (kind < 8) {
+                builder.append((char) (0x80 + random.nextInt(0x780)));
+            } else if (kind < 9) {
+                builder.append((char) (0x800 + random.nextInt(0xd000)));
+            } else {
+                builder.appendCodePoint(0x10000 + random.nextInt(0x1000));
+            }
+        }
+        String value = builder.toString();
+
+        StringBuilder expected = new StringBuilder();
+        JsonOutput.of(expected).appendString(value);
+
+        for (int bufferSize : new int[]{32, 33, 1024, JsonOutput.Utf8Output.DEFAULT_BUFFER_SIZE}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            JsonOutput output = new JsonOutput.Utf8Output(out, bufferSize).appendString(value);
+            output.flush();
+            assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void utf8NumbersTest() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonOutput output = JsonOutput.of(out);
+        output.append(0).append(' ').append(-7).append(' ').append(Integer.MAX_VALUE).append(' ').append(Integer.MIN_VALUE).append(' ')
+                .append(Long.MAX_VALUE).append(' ').append(Long.MIN_VALUE).append(' ').append(1.5).append(' ')
+                .append(true).append(' ').append(false);
+        output.flush();
+        assertEquals("0 -7 2147483647 -2147483648 9223372036854775807 -9223372036854775808 1.5 true false", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void appendObjectIdTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            byte[] bytes = new byte[12];
+            random.nextBytes(bytes);
+            ObjectId objectId = new ObjectId(bytes);
+            assertEquals("\"" + objectId.toHexString() + "\"", render(new ObjectId[]{objectId}, null));
+        }
+    }
+
+    @Test
+    public void appendDateTimeTest() {
+        long[] fixed = {0L, 1L, -1L, 60000L, 1000L, 1449321983184L, 1449321983000L, 1449321960000L, 1449273600000L,
+                -62135596800000L, -62135596800001L, 253402300799999L, 253402300800000L, Long.MAX_VALUE / 1000, Long.MIN_VALUE / 1000};
+        assertDateTimes(fixed);
+
+        Random random = new Random(42);
+        long[] randoms = new long[5000];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = i % 2 == 0 ? random.nextLong() % 4102444800000L : (random.nextLong() % 100000L) * 60000L;
+        }
+        assertDateTimes(randoms);
+    }
+
+    @Test
+    public void base64Test() {
+        byte[] data = new byte[200];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        for (int length = 0; length < data.length; length++) {
+            byte[] bytes = Arrays.copyOf(data, length);
+            String expected = '"' + Base64.getEncoder().encodeToString(bytes) + '"';
+
+            StringBuilder builder = new StringBuilder();
+            JsonOutput.of(builder).appendBase64(bytes);
+            assertEquals(expected, builder.toString());
+
+            StringWriter writer = new StringWriter();
+            JsonOutput.of(writer).appendBase64(bytes);
+            assertEquals(expected, writer.toString());
+
+            for (int bufferSize : new int[]{32, 33, 34, 35}) {
+                // an odd prefix moves the groups across the buffer boundaries
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                JsonOutput output = new JsonOutput.Utf8Output(out, bufferSize).append("x").appendBase64(bytes);
+                output.flush();
+                assertEquals("x" + expected, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    private static void assertDateTimes(final long[] millis) {
+        StringBuilder expected = new StringBuilder();
+        for (long m : millis) {
+            expected.append('"').append(LocalDateTime.ofInstant(Instant.ofEpochMilli(m), ZoneOffset.UTC)).append('"');
+        }
+        assertEquals(expected.toString(), render(null, millis));
+    }
+
+    private static String render(final ObjectId[] objectIds, final long[] millis) {
+        StringBuilder builder = new StringBuilder();
+        StringWriter writer = new StringWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonOutput utf8 = new JsonOutput.Utf8Output(out, 64);
+        for (JsonOutput output : new JsonOutput[]{JsonOutput.of(builder), JsonOutput.of(writer), utf8}) {
+            if (objectIds != null) {
+                for (ObjectId objectId : objectIds) {
+                    output.appendObjectId(objectId);
+                }
+            }
+            if (millis != null) {
+                for (long m : millis) {
+                    output.appendDateTime(m);
+                }
+            }
+        }
+        utf8.flush();
+        assertEquals(builder.toString(), writer.toString());
+        assertEquals(builder.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        return builder.toString();
+    }
+
+}
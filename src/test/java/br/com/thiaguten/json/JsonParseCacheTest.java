@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonParseCacheTest {
+
+    @Test
+    public void versionFieldTest() {
+        JsonParseCache cache = JsonParseCache.builder().versionField("version").build();
+        Document doc = new Document("_id", 1).append("version", 1).append("name", "a");
+
+        assertEquals("{\"_id\":1, \"version\":1, \"name\":\"a\"}", cache.parse(doc));
+        // same version, so the stale rendering is answered
+        doc.put("name", "b");
+        assertEquals("{\"_id\":1, \"version\":1, \"name\":\"a\"}", cache.parse(doc));
+        doc.put("version", 2);
+        assertEquals("{\"_id\":1, \"version\":2, \"name\":\"b\"}", cache.parse(doc));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void uncacheableTest() {
+        JsonParseCache cache = JsonParseCache.builder().versionField("version").build();
+        Document doc = new Document("_id", 1).append("name", "a");
+
+        assertEquals("{\"_id\":1, \"name\":\"a\"}", cache.parse(doc));
+        assertEquals("{}", cache.parse((Document) null));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void contentTest() {
+        JsonParseCache cache = JsonParseCache.builder().build();
+        RawBsonDocument raw = RawBsonDocument.parse("{\"a\": 1}");
+        byte[] bson = new byte[raw.getByteBuffer().remaining()];
+        raw.getByteBuffer().get(bson);
+
+        assertEquals("{\"a\":1}", cache.parse(raw));
+        assertEquals("{\"a\":1}", cache.parse(bson.clone()));
+        assertEquals("{\"a\":2}", cache.parse(RawBsonDocument.parse("{\"a\": 2}")));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        cache.parse(raw, outputStream);
+        assertEquals("{\"a\":1}", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+
+        StringBuilder builder = new StringBuilder();
+        cache.parse(new BsonDocument("a", new BsonInt32(1)), builder);
+        assertEquals("{\"a\":1}", builder.toString());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void contentKeyTest() {
+        JsonParseCache cache = JsonParseCache.builder().build();
+        RawBsonDocument raw = RawBsonDocument.parse("{\"a\": 1}");
+        byte[] bson = new byte[raw.getByteBuffer().remaining()];
+        raw.getByteBuffer().get(bson);
+
+        assertEquals("{\"a\":1}", cache.parse(bson));
+        // the cached key is a copy, changing the bytes afterwards does not change it
+        bson[bson.length - 5] = 4;
+        assertEquals("{\"a\":4}", cache.parse(bson));
+        assertEquals(0, cache.getHitCount());
+
+        // a document in the middle of a larger array is keyed by its own bytes
+        byte[] padded = new byte[bson.length + 8];
+        System.arraycopy(bson, 0, padded, 4, bson.length);
+        assertEquals("{\"a\":4}", cache.parse(new RawBsonDocument(padded, 4, bson.length)));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void evictionTest() {
+        JsonParseCache cache = JsonParseCache.builder().versionField("v").maximumWeight(40).build();
+        Document first = new Document("_id", 1).append("v", 1);
+        Document second = new Document("_id", 2).append("v", 1);
+        Document third = new Document("_id", 3).append("v", 1);
+
+        cache.parse(first);
+        cache.parse(second);
+        cache.parse(first);
+        cache.parse(third);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertEquals(32, cache.getWeight());
+        cache.parse(first);
+        assertEquals(2, cache.getHitCount());
+
+        cache.parse(new Document("_id", 4).append("v", 1).append("name", "longer than the maximum weight"));
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maximumWeightInvalidTest() {
+        JsonParseCache.builder().maximumWeight(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void engineNullTest() {
+        JsonParseCache.builder().engine(null);
+    }
+
+}
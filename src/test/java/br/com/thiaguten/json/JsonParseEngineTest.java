@@ -0,0 +1,331 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.BsonValueCodecProvider;
+import org.bson.codecs.ValueCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class JsonParseEngineTest {
+
+    @Test
+    public void defaultEngineTest() {
+        assertNotNull(JsonParseEngine.getDefault());
+        assertSame(JsonParseEngine.getDefault(), JsonParseEngine.getDefault());
+        assertNotSame(JsonParseEngine.getDefault(), JsonParseEngine.builder().build());
+    }
+
+    @Test
+    public void builderTest() {
+        CodecRegistry codecRegistry = CodecRegistries.fromProviders(new BsonValueCodecProvider(), new ValueCodecProvider());
+        JsonParseEngine engine = JsonParseEngine.builder().codecRegistry(codecRegistry).build();
+        assertSame(codecRegistry, engine.getCodecRegistry());
+        assertEquals("[\"a\", {\"b\":1}]", engine.parse("[\"a\", {\"b\":1}]"));
+        assertEquals("{\"a\":[\"b\"]}", engine.parse("{\"a\":[\"b\"]}"));
+        assertEquals("[\"value\"]", engine.parse(new BsonArray(Collections.singletonList(new BsonString("value")))));
+        assertEquals("{\"key\":\"value\"}", engine.parse(new BsonDocument("key", new BsonString("value"))));
+        assertEquals("{\"key\":\"value\"}", engine.transcode("{\"key\":\"value\"}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderNullCodecRegistryTest() {
+        JsonParseEngine.builder().codecRegistry(null);
+    }
+
+    @Test
+    public void sharedAcrossThreadsTest() throws Exception {
+        final JsonParseEngine engine = JsonParseEngine.builder().build();
+        final String json = new Document("_id", new ObjectId("5662e5798172910f5a925a43")).append("list", Collections.singletonList(1)).toJson();
+        final String expected = "{\"_id\":\"5662e5798172910f5a925a43\", \"list\":[1]}";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return engine.parse("[" + json + "]");
+                    }
+                }));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("[" + expected + "]", future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelBuilderTest() {
+        JsonParseEngine engine = JsonParseEngine.getDefault();
+        assertEquals(Integer.MAX_VALUE, engine.getParallelThreshold());
+        assertSame(ForkJoinPool.commonPool(), engine.getExecutor());
+
+        Executor executor = Executors.newSingleThreadExecutor();
+        engine = JsonParseEngine.builder().parallelThreshold(10).executor(executor).build();
+        assertEquals(10, engine.getParallelThreshold());
+        assertSame(executor, engine.getExecutor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelThresholdInvalidTest() {
+        JsonParseEngine.builder().parallelThreshold(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelExecutorNullTest() {
+        JsonParseEngine.builder().executor(null);
+    }
+
+    @Test
+    public void parallelListTest() {
+        List<Object> list = new ArrayList<>();
+        BsonArray bsonArray = new BsonArray();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i % 3 == 0 ? new Document("i", i).append("list", Collections.singletonList(i)) : "value" + i);
+            bsonArray.add(i % 3 == 0 ? new BsonDocument("i", new BsonInt32(i)) : new BsonString("value" + i));
+        }
+        JsonParseEngine sequential = JsonParseEngine.getDefault();
+        final AtomicInteger tasks = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            JsonParseEngine parallel = JsonParseEngine.builder().parallelThreshold(100).executor(new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    tasks.incrementAndGet();
+                    executor.execute(command);
+                }
+            }).build();
+            assertEquals(sequential.parse(list), parallel.parse(list));
+            assertTrue(tasks.get() > 1);
+            tasks.set(0);
+            assertEquals(sequential.parse(list), parallel.parse(new LinkedList<>(list)));
+            assertTrue(tasks.get() > 1);
+            assertEquals(sequential.parse(bsonArray), parallel.parse(bsonArray));
+            String json = sequential.parse(bsonArray);
+            assertEquals(json, parallel.parse(json));
+
+            tasks.set(0);
+            assertEquals(sequential.parse(list.subList(0, 99)), parallel.parse(list.subList(0, 99)));
+            assertEquals(0, tasks.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelBatchTest() {
+        List<Map> documents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            documents.add(new Document("_id", new ObjectId()).append("i", i));
+        }
+        JsonParseEngine sequential = JsonParseEngine.getDefault();
+        JsonParseEngine parallel = JsonParseEngine.builder().parallelThreshold(50).build();
+        for (BatchFormat format : BatchFormat.values()) {
+            assertEquals(sequential.parseBatch(documents, format), parallel.parseBatch(documents, format));
+            assertEquals(sequential.parseBatch(documents.subList(0, 50), format), parallel.parseBatch(documents.subList(0, 50), format));
+            assertEquals(sequential.parseBatch(documents.subList(0, 10), format), parallel.parseBatch(documents.subList(0, 10), format));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void parallelFailureTest() {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(Pattern.compile("a", i == 50 ? Pattern.CASE_INSENSITIVE | Pattern.MULTILINE : Pattern.CASE_INSENSITIVE));
+        }
+        JsonParseEngine.builder().parallelThreshold(10).build().parse(list);
+    }
+
+    @Test
+    public void parallelInsidePoolTest() throws Exception {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            list.add(new Document("i", i));
+        }
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final JsonParseEngine engine = JsonParseEngine.builder().parallelThreshold(100).executor(pool).build();
+            String expected = JsonParseEngine.getDefault().parse(list);
+            Future<String> first = pool.submit(() -> engine.parse(list));
+            Future<String> second = pool.submit(() -> engine.parse(list));
+            assertEquals(expected, first.get(10, TimeUnit.SECONDS));
+            assertEquals(expected, second.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void writerTest() {
+        UUID uuid = UUID.fromString("0d5b8f2a-6e1c-4f5e-9d8b-1c2f3a4b5c6d");
+        Document doc = new Document("uuid", uuid)
+                .append("binary", new Binary(new byte[]{1, 2, 3}))
+                .append("date", new Date(0L))
+                .append("unknown", new Object())
+                .append("list", Arrays.asList(uuid, 1));
+
+        assertEquals("{\"uuid\":\"0d5b8f2a-6e1c-4f5e-9d8b-1c2f3a4b5c6d\", \"binary\":\"AQID\", \"date\":\"1970-01-01T00:00\", \"unknown\":null, \"list\":[\"0d5b8f2a-6e1c-4f5e-9d8b-1c2f3a4b5c6d\", 1]}", JsonParseEngine.getDefault().parse(doc));
+
+        JsonParseEngine engine = JsonParseEngine.builder()
+                .writer(UUID.class, new JsonValueWriter<UUID>() {
+                    @Override
+                    public void write(UUID value, JsonValueOutput output) {
+                        output.writeString(value.toString());
+                    }
+                })
+                .writer(Binary.class, new JsonValueWriter<Binary>() {
+                    @Override
+                    public void write(Binary value, JsonValueOutput output) {
+                        output.writeNumber(value.length());
+                    }
+                })
+                .writer(Date.class, new JsonValueWriter<Date>() {
+                    @Override
+                    public void write(Date value, JsonValueOutput output) {
+                        output.writeNumber(value.getTime());
+                    }
+                })
+                .writer(Object.class, new JsonValueWriter<Object>() {
+                    @Override
+                    public void write(Object value, JsonValueOutput output) {
+                        output.writeNull();
+                    }
+                })
+                .build();
+        assertEquals("{\"uuid\":\"0d5b8f2a-6e1c-4f5e-9d8b-1c2f3a4b5c6d\", \"binary\":3, \"date\":0, \"unknown\":null, \"list\":null}", engine.parse(doc));
+    }
+
+    @Test
+    public void writerSubtypeTest() {
+        JsonParseEngine engine = JsonParseEngine.builder()
+                .writer(Number.class, new JsonValueWriter<Number>() {
+                    @Override
+                    public void write(Number value, JsonValueOutput output) {
+                        output.writeRaw("\"").writeRaw(value.toString()).writeRaw("\"");
+                    }
+                })
+                .writer(CharSequence.class, new JsonValueWriter<CharSequence>() {
+                    @Override
+                    public void write(CharSequence value, JsonValueOutput output) {
+                        output.writeBoolean(value.length() > 0).writeRaw(" ").writeNumber(0.5);
+                    }
+                })
+                .build();
+        assertEquals("[\"1\", \"2.5\", true 0.5, false 0.5, \"value\"]", engine.parse(Arrays.asList(1, 2.5, "a", new StringBuilder(), new BsonString("value"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writerNullTest() {
+        JsonParseEngine.builder().writer(UUID.class, null);
+    }
+
+    @Test
+    public void projectionIncludeTest() {
+        JsonParseEngine engine = JsonParseEngine.builder().projection(Projection.include("name", "a.b", "items.*.price")).build();
+        Document doc = new Document("name", "x")
+                .append("skip", new Document("deep", 1))
+                .append("a", new Document("b", 1).append("c", 2))
+                .append("items", Arrays.asList(new Document("price", 10).append("qty", 1), new Document("qty", 2), 3));
+        String expected = "{\"name\":\"x\", \"a\":{\"b\":1}, \"items\":[{\"price\":10}, {}]}";
+
+        assertEquals(expected, engine.parse(doc));
+        assertEquals(expected, engine.parse(doc.toJson()));
+        assertEquals(expected, engine.transcode(doc.toJson()));
+        assertEquals(expected, engine.parse(BsonDocument.parse(doc.toJson())));
+        assertEquals("[" + expected + ", {\"name\":\"y\"}]", engine.parse(Arrays.asList(doc, new Document("name", "y").append("skip", 1))));
+    }
+
+    @Test
+    public void projectionExcludeTest() {
+        JsonParseEngine engine = JsonParseEngine.builder().projection(Projection.exclude("a.b", "items.0", "items.*.qty")).build();
+        Document doc = new Document("name", "x")
+                .append("a", new Document("b", 1).append("c", 2))
+                .append("items", Arrays.asList(new Document("price", 10), new Document("price", 20).append("qty", 2)));
+        String expected = "{\"name\":\"x\", \"a\":{\"c\":2}, \"items\":[{\"price\":20}]}";
+
+        assertEquals(expected, engine.parse(doc));
+        assertEquals(expected, engine.transcode(doc.toJson()));
+        assertEquals("exclude[a.b, items.0, items.*.qty]", engine.getProjection().toString());
+    }
+
+    @Test
+    public void plainJsonPassThroughTest() {
+        JsonParseEngine engine = JsonParseEngine.builder().plainJsonPassThrough(true).build();
+        String plain = "  { \"a\" : [1.50, true, null, \"x\\\"$oid\"], \"b\" : { \"c\" : false, \"d\" : -1e3 } }";
+
+        assertTrue(engine.isPlainJsonPassThrough());
+        assertSame(plain, engine.parse(plain));
+        assertSame(plain, engine.transcode(plain));
+        StringBuilder builder = new StringBuilder();
+        engine.parse(plain, builder);
+        assertEquals(plain, builder.toString());
+        assertEquals("{\"a\":[1.5, true, null, \"x\\\"$oid\"], \"b\":{\"c\":false, \"d\":-1000.0}}", JsonParseEngine.getDefault().parse(plain));
+
+        assertEquals("{\"_id\":\"5662e5798172910f5a925a43\"}", engine.parse("{ \"_id\" : { \"$oid\" : \"5662e5798172910f5a925a43\" } }"));
+        assertEquals("{\"_id\":\"5662e5798172910f5a925a43\"}", engine.transcode("{ \"_id\" : ObjectId(\"5662e5798172910f5a925a43\") }"));
+        assertEquals("{\"a\":1}", engine.parse("{a: 1}"));
+        assertEquals("[\"\\\\d/i\"]", engine.parse("[/\\d/i]"));
+
+        JsonParseEngine projecting = JsonParseEngine.builder().plainJsonPassThrough(true).projection(Projection.include("a")).build();
+        assertEquals("{\"a\":1}", projecting.parse("{\"a\": 1, \"b\": 2}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectionEmptySegmentTest() {
+        Projection.include("a..b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectionNoPathTest() {
+        Projection.exclude();
+    }
+
+}
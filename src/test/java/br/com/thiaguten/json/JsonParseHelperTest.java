@@ -20,22 +20,41 @@
 package br.com.thiaguten.json;
 
 import org.bson.*;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonWriterSettings;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.CodeWithScope;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
 import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 import static br.com.thiaguten.json.JsonParseHelper.parse;
+import static br.com.thiaguten.json.JsonParseHelper.parseBatch;
+import static br.com.thiaguten.json.JsonParseHelper.parseChunked;
+import static br.com.thiaguten.json.JsonParseHelper.transcode;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
@@ -222,4 +241,235 @@ public class JsonParseHelperTest {
         assertEquals("{\"_id\":\"5662e5798172910f5a925a43\", \"date\":\"2015-12-05T13:26:23.184\", \"pattern\":\"\\\\d/i\", \"pattern2\":\"\\\\s\", \"long\":9223372036854775807, \"null\":null, \"double\":1.0, \"string\":\"thiago\", \"boolean\":true, \"doc\":{\"key\":\"value\"}, \"list\":[\"value\"], \"map\":{\"key\":\"value\"}}", parse(document.toJson(new JsonWriterSettings(JsonMode.SHELL))));
     }
 
+    @Test
+    public void transcodeStringTest() {
+        String json = "[1, \"string\", true]";
+        assertEquals(json, transcode(json));
+        json = null;
+        assertEquals(null, transcode(json));
+        json = "";
+        assertEquals(json, transcode(json));
+        json = "plain text";
+        assertEquals(json, transcode(json));
+    }
+
+    @Test
+    public void transcodeTest() {
+        assertEquals(parse(bsonDocument.toJson()), transcode(bsonDocument.toJson()));
+        assertEquals(parse(bsonDocument.toJson(new JsonWriterSettings(JsonMode.SHELL))), transcode(bsonDocument.toJson(new JsonWriterSettings(JsonMode.SHELL))));
+        assertEquals(parse(document.toJson(new JsonWriterSettings(JsonMode.STRICT))), transcode(document.toJson(new JsonWriterSettings(JsonMode.STRICT))));
+        assertEquals(parse(document.toJson(new JsonWriterSettings(JsonMode.SHELL))), transcode(document.toJson(new JsonWriterSettings(JsonMode.SHELL))));
+        assertEquals("{}", transcode(" {} "));
+        assertEquals("[]", transcode("[]"));
+        assertEquals("[\"a\", \"b\", [\"c\", {\"d\":[1, 2.5, null]}]]", transcode("[\"a\", \"b\", [\"c\", {\"d\":[1, 2.5, null]}]]"));
+        assertEquals(parse("[{\"_id\":ObjectId(\"5662e5798172910f5a925a43\")}, /\\d/i]"), transcode("[{\"_id\":ObjectId(\"5662e5798172910f5a925a43\")}, /\\d/i]"));
+        // the types without a JSON counterpart are rendered exactly like the tree based parse does
+        assertEquals(parse("{\"a\":1, \"b\":{\"$minKey\":1}, \"c\":3}"), transcode("{\"a\":1, \"b\":{\"$minKey\":1}, \"c\":3}"));
+        // but duplicate keys are kept, not collapsed into the last value
+        assertEquals("{\"a\":2}", parse("{\"a\":1, \"a\":2}"));
+        assertEquals("{\"a\":1, \"a\":2}", transcode("{\"a\":1, \"a\":2}"));
+    }
+
+    @Test
+    public void parseAppendableTest() {
+        String json = document.toJson(new JsonWriterSettings(JsonMode.SHELL));
+
+        StringWriter writer = new StringWriter();
+        parse(document, writer);
+        assertEquals(parse(document), writer.toString());
+
+        writer = new StringWriter();
+        parse(bsonDocument.get("list").asArray(), writer);
+        assertEquals("[\"value\"]", writer.toString());
+
+        writer = new StringWriter();
+        parse(json, writer);
+        assertEquals(parse(json), writer.toString());
+
+        writer = new StringWriter();
+        transcode(json, writer);
+        assertEquals(parse(json), writer.toString());
+
+        writer = new StringWriter();
+        parse((String) null, writer);
+        transcode((String) null, writer);
+        assertEquals("", writer.toString());
+    }
+
+    @Test
+    public void parseOutputStreamTest() {
+        Document unicode = new Document("key", "a\u00e7\u00e3o \u6f22\u5b57");
+        String json = unicode.toJson();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        parse(unicode, out);
+        assertEquals(parse(unicode), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out = new ByteArrayOutputStream();
+        parse(Collections.singletonList("a\u00e7\u00e3o"), out);
+        assertEquals("[\"a\u00e7\u00e3o\"]", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out = new ByteArrayOutputStream();
+        parse(json, out);
+        assertEquals(parse(json), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out = new ByteArrayOutputStream();
+        transcode(json, out);
+        assertEquals(parse(json), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseBinaryTest() {
+        String expected = parse(bsonDocument);
+        RawBsonDocument rawBsonDocument = new RawBsonDocument(bsonDocument, new BsonDocumentCodec());
+        byte[] bytes = rawBsonDocument.getByteBuffer().array();
+
+        assertEquals(expected, parse(rawBsonDocument));
+        assertEquals(expected, parse((Map) rawBsonDocument));
+        assertEquals(expected, parse(bytes));
+        assertEquals("{}", parse((byte[]) null));
+        assertEquals("{}", parse((ByteBuffer) null));
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.put(new byte[]{1, 2, 3}).put(bytes).position(3);
+        assertEquals(expected, parse(buffer));
+        assertEquals(3, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+
+        StringWriter writer = new StringWriter();
+        parse(bytes, writer);
+        assertEquals(expected, writer.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        parse(bytes, out);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        // raw documents nested in other documents are walked in binary as well
+        assertEquals("{\"raw\":" + expected + "}", parse(new Document("raw", rawBsonDocument)));
+        assertEquals("[" + expected + "]", parse(Collections.singletonList(rawBsonDocument)));
+    }
+
+    @Test
+    public void bsonTypesTest() {
+        ObjectId id = new ObjectId("5662e5798172910f5a925a43");
+        BsonDocument bsonDocument = new BsonDocument()
+                .append("decimal", new BsonDecimal128(Decimal128.parse("1.50E+3")))
+                .append("negativeZero", new BsonDecimal128(Decimal128.parse("-0.00")))
+                .append("nan", new BsonDecimal128(Decimal128.NaN))
+                .append("binary", new BsonBinary(new byte[]{1, 2, 3, 4, 5}))
+                .append("timestamp", new BsonTimestamp(-1, 7))
+                .append("symbol", new BsonSymbol("s"))
+                .append("code", new BsonJavaScript("f()"))
+                .append("codeWithScope", new BsonJavaScriptWithScope("g(x)", new BsonDocument("x", new BsonInt32(1))))
+                .append("dbPointer", new BsonDbPointer("db.c", id))
+                .append("min", new BsonMinKey())
+                .append("max", new BsonMaxKey())
+                .append("undefined", new BsonUndefined())
+                .append("last", new BsonInt32(1));
+        String expected = "{\"decimal\":1500, \"negativeZero\":-0.00, \"nan\":\"NaN\", \"binary\":\"AQIDBAU=\", "
+                + "\"timestamp\":{\"t\":4294967295, \"i\":7}, \"symbol\":\"s\", \"code\":\"f()\", \"codeWithScope\":\"g(x)\", "
+                + "\"dbPointer\":{\"$ref\":\"db.c\", \"$id\":\"5662e5798172910f5a925a43\"}, "
+                + "\"min\":{\"$minKey\":1}, \"max\":{\"$maxKey\":1}, \"undefined\":null, \"last\":1}";
+
+        assertEquals(expected, parse(bsonDocument));
+        assertEquals(expected, parse(new RawBsonDocument(bsonDocument, new BsonDocumentCodec())));
+
+        Document document = new Document()
+                .append("decimal", Decimal128.parse("1.50E+3"))
+                .append("binary", new Binary(new byte[]{1, 2, 3, 4, 5}))
+                .append("symbol", new Symbol("s"))
+                .append("code", new Code("f()"))
+                .append("codeWithScope", new CodeWithScope("g(x)", new Document("x", 1)))
+                .append("min", new MinKey())
+                .append("max", new MaxKey());
+        assertEquals("{\"decimal\":1500, \"binary\":\"AQIDBAU=\", \"symbol\":\"s\", \"code\":\"f()\", \"codeWithScope\":\"g(x)\", "
+                + "\"min\":{\"$minKey\":1}, \"max\":{\"$maxKey\":1}}", parse(document));
+    }
+
+    @Test
+    public void transcodeBsonTypesTest() {
+        String json = "{\"decimal\":{\"$numberDecimal\":\"1.50E+3\"}, "
+                + "\"timestamp\":{\"$timestamp\":{\"t\":1449321983, \"i\":7}}, \"code\":{\"$code\":\"f()\"}, "
+                + "\"codeWithScope\":{\"$code\":\"g(x)\", \"$scope\":{\"x\":1}}, \"min\":{\"$minKey\":1}, \"max\":{\"$maxKey\":1}, "
+                + "\"undefined\":{\"$undefined\":true}, \"last\":1}";
+
+        assertEquals("{\"decimal\":1500, \"timestamp\":{\"t\":1449321983, \"i\":7}, \"code\":\"f()\", "
+                + "\"codeWithScope\":\"g(x)\", \"min\":{\"$minKey\":1}, \"max\":{\"$maxKey\":1}, \"undefined\":null, \"last\":1}", transcode(json));
+        assertEquals(parse(json), transcode(json));
+    }
+
+    @Test
+    public void escapeTest() {
+        String expected = "{\"say \\\"hi\\\"\":\"line\\nbreak \\\\ \\u0001\", \"pattern\":\"a\\\\.b\"}";
+        Document escape = new Document("say \"hi\"", "line\nbreak \\ \u0001").append("pattern", Pattern.compile("a\\.b"));
+        BsonDocument bsonEscape = new BsonDocument("say \"hi\"", new BsonString("line\nbreak \\ \u0001")).append("pattern", new BsonRegularExpression("a\\.b"));
+        assertEquals(expected, parse(escape));
+        assertEquals(expected, parse(bsonEscape));
+        assertEquals(expected, parse(bsonEscape.toJson()));
+        assertEquals(expected, transcode(bsonEscape.toJson()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        parse(escape, out);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseBatchTest() {
+        List<Document> documents = Arrays.asList(document, new Document("key", "value"));
+        String expected = parse(document);
+
+        assertEquals("[]", parseBatch(Collections.<Map>emptyList(), BatchFormat.ARRAY));
+        assertEquals("", parseBatch(Collections.<Map>emptyList(), BatchFormat.NDJSON));
+        assertEquals("[" + expected + ", {\"key\":\"value\"}]", parseBatch(documents, BatchFormat.ARRAY));
+        assertEquals(parse(documents), parseBatch(documents, BatchFormat.ARRAY));
+        assertEquals(expected + "\n{\"key\":\"value\"}\n", parseBatch(documents, BatchFormat.NDJSON));
+
+        StringWriter writer = new StringWriter();
+        parseBatch(Arrays.asList(bsonDocument, bsonDocument).iterator(), BatchFormat.NDJSON, writer);
+        assertEquals(expected + "\n" + expected + "\n", writer.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        parseBatch(documents, BatchFormat.ARRAY, out);
+        assertEquals(parseBatch(documents, BatchFormat.ARRAY), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out = new ByteArrayOutputStream();
+        parseBatch(documents.iterator(), BatchFormat.NDJSON, out);
+        assertEquals(parseBatch(documents, BatchFormat.NDJSON), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseChunkedTest() {
+        List<Document> documents = Collections.nCopies(100, document);
+        int size = parse(document).getBytes(StandardCharsets.UTF_8).length;
+
+        for (BatchFormat format : BatchFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int chunks = 0;
+            for (Iterator<ByteBuffer> iterator = parseChunked(documents.iterator(), format, 10 * size); iterator.hasNext(); chunks++) {
+                ByteBuffer chunk = iterator.next();
+                // whole documents, at least the chunk size but the last one
+                assertTrue(chunk.remaining() >= 10 * size || !iterator.hasNext());
+                assertTrue(chunk.remaining() < 11 * size + 10);
+                out.write(chunk.array(), chunk.position(), chunk.remaining());
+            }
+            assertEquals(parseBatch(documents, format), new String(out.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(10, chunks);
+        }
+
+        Iterator<ByteBuffer> array = parseChunked(Collections.<Map>emptyIterator(), BatchFormat.ARRAY, 1);
+        assertEquals("[]", StandardCharsets.UTF_8.decode(array.next()).toString());
+        assertFalse(array.hasNext());
+        assertFalse(parseChunked(Collections.<Map>emptyIterator(), BatchFormat.NDJSON, 1).hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void parseChunkedEndTest() {
+        parseChunked(Collections.<Map>emptyIterator(), BatchFormat.NDJSON, 1).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseChunkedInvalidSizeTest() {
+        parseChunked(Collections.<Map>emptyIterator(), BatchFormat.NDJSON, 0);
+    }
+
 }
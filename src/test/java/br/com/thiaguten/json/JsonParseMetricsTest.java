@@ -0,0 +1,165 @@
+/*-
+ * #%L
+ * JsonParseHelper
+ * %%
+ * Copyright (C) 2016 Thiago Gutenberg Carvalho da Costa
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package br.com.thiaguten.json;
+
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonParseMetricsTest {
+
+    @Test
+    public void listenerTest() {
+        final List<JsonParseEvent> events = new ArrayList<>();
+        JsonParseEngine engine = JsonParseEngine.builder()
+                .listener(new JsonParseListener() {
+                    @Override
+                    public void onConversion(JsonParseEvent event) {
+                        events.add(event);
+                    }
+                })
+                .build();
+        String json = "{\"a\": [1, {\"b\": \"c\"}], \"d\": {\"$numberLong\": \"1\"}}";
+
+        String expected = "{\"a\":[1, {\"b\":\"c\"}], \"d\":1}";
+
+        assertEquals(expected, engine.parse(json));
+        assertEquals(1, events.size());
+        JsonParseEvent event = events.get(0);
+        assertSame(json, event.getInput());
+        assertEquals(json.length(), event.getInputSize());
+        assertEquals(expected.length(), event.getOutputSize());
+        assertTrue(event.getLatency() >= 0);
+
+        DocumentShape shape = event.getShape();
+        assertSame(shape, event.getShape());
+        assertEquals(3, shape.getMaxDepth());
+        assertEquals(6, shape.getElementCount());
+        assertEquals(2, shape.getCount(BsonType.DOCUMENT));
+        assertEquals(1, shape.getCount(BsonType.INT64));
+
+        // the JSON returned or written as is is reported the same way
+        assertEquals("plain", engine.parse("plain"));
+        engine.parse("plain", new StringBuilder());
+        assertEquals(3, events.size());
+        for (JsonParseEvent plain : events.subList(1, 3)) {
+            assertSame("plain", plain.getInput());
+            assertEquals(5, plain.getOutputSize());
+            assertEquals(0, plain.getShape().getElementCount());
+        }
+
+        // null is reported with nothing written, like the Appendable overloads do
+        assertNull(engine.parse((String) null));
+        assertNull(engine.transcode((String) null));
+        assertEquals(5, events.size());
+        for (JsonParseEvent nothing : events.subList(3, 5)) {
+            assertNull(nothing.getInput());
+            assertEquals(0, nothing.getOutputSize());
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        RawBsonDocument raw = RawBsonDocument.parse(json);
+        engine.parse(raw.getByteBuffer().array(), outputStream);
+        assertEquals(6, events.size());
+        assertTrue(events.get(5).getInput() instanceof ByteBuffer);
+        assertEquals(outputStream.size(), events.get(5).getOutputSize());
+        assertEquals(6, events.get(5).getShape().getElementCount());
+
+        engine.parseBatch(Arrays.asList(new Document("a", 1)), BatchFormat.ARRAY);
+        assertNull(events.get(6).getShape());
+    }
+
+    @Test
+    public void documentShapeTest() {
+        Document doc = new Document("_id", new ObjectId())
+                .append("list", Arrays.asList(1, 2L, 3.0, null, new Document("flag", true)));
+        DocumentShape shape = DocumentShape.of(doc);
+
+        assertEquals(3, shape.getMaxDepth());
+        assertEquals(9, shape.getElementCount());
+        assertEquals(1, shape.getCount(BsonType.OBJECT_ID));
+        assertEquals(1, shape.getCount(BsonType.ARRAY));
+        assertEquals(1, shape.getCount(BsonType.NULL));
+        assertEquals(1, shape.getCount(BsonType.BOOLEAN));
+        assertEquals(0, DocumentShape.of("plain").getMaxDepth());
+        assertEquals(2, DocumentShape.of(" \n[{}]").getMaxDepth());
+
+        RawBsonDocument raw = RawBsonDocument.parse("{\"a\": [1, {\"b\": \"c\"}], \"d\": {\"$numberLong\": \"1\"}}");
+        shape = DocumentShape.of(raw);
+        assertEquals(3, shape.getMaxDepth());
+        assertEquals(6, shape.getElementCount());
+        assertEquals(1, shape.getCount(BsonType.INT64));
+    }
+
+    @Test
+    public void metricsTest() {
+        JsonParseMetrics metrics = new JsonParseMetrics(true);
+        JsonParseEngine engine = JsonParseEngine.builder().listener(metrics).build();
+
+        assertSame(metrics, engine.getListener());
+        for (int i = 0; i < 10; i++) {
+            engine.parse(new Document("i", i));
+        }
+        engine.parse("[\"a\"]", new StringBuilder("prefix"));
+
+        assertEquals(11, metrics.getLatency().getCount());
+        assertEquals(1, metrics.getInputSize().getCount());
+        assertEquals(11, metrics.getOutputSize().getCount());
+        assertEquals(7, metrics.getOutputSize().getMax());
+        assertEquals(10, metrics.getCount(BsonType.INT32));
+        assertEquals(1, metrics.getCount(BsonType.STRING));
+        assertEquals(1, metrics.getMaxDepth().getMax());
+        assertEquals(0, new JsonParseMetrics().getCount(BsonType.INT32));
+    }
+
+    @Test
+    public void histogramTest() {
+        JsonParseMetrics.Histogram histogram = new JsonParseMetrics().getLatency();
+        assertEquals(0, histogram.getPercentile(0.5));
+
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-1);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.0);
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(0.99));
+        assertEquals(1, histogram.getPercentile(0.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogramPercentileInvalidTest() {
+        new JsonParseMetrics().getLatency().getPercentile(2);
+    }
+
+}